@@ -12,12 +12,26 @@ public class ExplosionConfig extends ElementConfig<EntityInstanceEvent> {
 	public static final ExplosionConfig DEFAULT = defaultBuilder().build();
 	
 	private final boolean tntEnabled, crystalEnabled, anchorEnabled;
+	private final boolean parallelRays;
+	private final float parallelRayStrength;
+	private final double tntMergeRadius;
+	private final int exposureSamples;
+	private final double packetDistance;
+	private final boolean async;
 	
-	ExplosionConfig(boolean legacy, boolean tntEnabled, boolean crystalEnabled, boolean anchorEnabled) {
+	ExplosionConfig(boolean legacy, boolean tntEnabled, boolean crystalEnabled, boolean anchorEnabled,
+	                boolean parallelRays, float parallelRayStrength, double tntMergeRadius, int exposureSamples,
+	                double packetDistance, boolean async) {
 		super(legacy);
 		this.tntEnabled = tntEnabled;
 		this.crystalEnabled = crystalEnabled;
 		this.anchorEnabled = anchorEnabled;
+		this.parallelRays = parallelRays;
+		this.parallelRayStrength = parallelRayStrength;
+		this.tntMergeRadius = tntMergeRadius;
+		this.exposureSamples = exposureSamples;
+		this.packetDistance = packetDistance;
+		this.async = async;
 	}
 	
 	public boolean isTntEnabled() {
@@ -32,6 +46,48 @@ public class ExplosionConfig extends ElementConfig<EntityInstanceEvent> {
 		return anchorEnabled;
 	}
 	
+	/**
+	 * @return whether the block rays of strong explosions are cast on a dedicated fork-join pool
+	 */
+	public boolean isParallelRays() {
+		return parallelRays;
+	}
+	
+	/**
+	 * @return the minimum strength of an explosion to cast its block rays in parallel
+	 */
+	public float getParallelRayStrength() {
+		return parallelRayStrength;
+	}
+	
+	/**
+	 * @return the radius in which primed tnt is merged, or 0 if tnt merging is disabled
+	 */
+	public double getTntMergeRadius() {
+		return tntMergeRadius;
+	}
+	
+	/**
+	 * @return the maximum amount of exposure samples per axis for non-player entities, or 0 to sample like vanilla
+	 */
+	public int getExposureSamples() {
+		return exposureSamples;
+	}
+	
+	/**
+	 * @return the maximum distance of players to receive explosion packets, or 0 to send them to all chunk viewers
+	 */
+	public double getPacketDistance() {
+		return packetDistance;
+	}
+	
+	/**
+	 * @return whether explosions are calculated on another thread and applied in the next tick
+	 */
+	public boolean isAsync() {
+		return async;
+	}
+	
 	@Override
 	public EventNode<EntityInstanceEvent> createNode() {
 		return ExplosionListener.events(this);
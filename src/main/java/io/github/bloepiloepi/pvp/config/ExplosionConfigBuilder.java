@@ -3,6 +3,12 @@ package io.github.bloepiloepi.pvp.config;
 public class ExplosionConfigBuilder {
 	private final boolean legacy;
 	private boolean tntEnabled, crystalEnabled, anchorEnabled;
+	private boolean parallelRays;
+	private float parallelRayStrength = 8.0F;
+	private double tntMergeRadius;
+	private int exposureSamples;
+	private double packetDistance;
+	private boolean async;
 	
 	ExplosionConfigBuilder(boolean legacy) {
 		this.legacy = legacy;
@@ -30,7 +36,77 @@ public class ExplosionConfigBuilder {
 		return this;
 	}
 	
+	/**
+	 * Casts the block rays of explosions with at least the given strength on a dedicated fork-join pool,
+	 * reading from a copy of the blocks around the explosion.
+	 * The tick thread waits for the rays to finish, so this only helps for explosions strong enough
+	 * to make splitting them up worth it.
+	 *
+	 * @param parallelRays whether to cast rays in parallel
+	 * @param minimumStrength the minimum explosion strength, vanilla tnt has a strength of 4
+	 * @return this builder
+	 */
+	public ExplosionConfigBuilder parallelRays(boolean parallelRays, float minimumStrength) {
+		this.parallelRays = parallelRays;
+		this.parallelRayStrength = minimumStrength;
+		return this;
+	}
+	
+	/**
+	 * Merges primed tnt within the given radius of each other.
+	 * Tnt with the same fuse and velocity is merged into one entity while it is ticking,
+	 * and tnt exploding in the same tick is merged into one explosion.
+	 * A merged explosion only breaks blocks and damages entities once,
+	 * but its knockback is multiplied by the amount of tnt that was merged.
+	 *
+	 * @param radius the merge radius, 0 to disable merging
+	 * @return this builder
+	 */
+	public ExplosionConfigBuilder tntMerging(double radius) {
+		this.tntMergeRadius = radius;
+		return this;
+	}
+	
+	/**
+	 * Limits the amount of rays used to calculate how much of a non-player entity is exposed to an explosion.
+	 * Vanilla casts a ray from every sample point of the bounding box, which are up to a few per block on each axis.
+	 * Players always use the vanilla sample points.
+	 *
+	 * @param samples the maximum amount of sample points per axis, 0 to sample like vanilla
+	 * @return this builder
+	 */
+	public ExplosionConfigBuilder coarseExposure(int samples) {
+		this.exposureSamples = samples;
+		return this;
+	}
+	
+	/**
+	 * Only sends explosion packets to viewers of the explosion chunk within the given distance.
+	 * Vanilla sends them to players within 64 blocks.
+	 *
+	 * @param distance the maximum distance, 0 to send them to all chunk viewers
+	 * @return this builder
+	 */
+	public ExplosionConfigBuilder packetDistance(double distance) {
+		this.packetDistance = distance;
+		return this;
+	}
+	
+	/**
+	 * Calculates explosions on another thread, using a copy of the blocks and entities around them.
+	 * The result is applied in the next tick of the instance, including the explosion event.
+	 * This delays explosions by a tick, but keeps large explosions from slowing down the tick.
+	 *
+	 * @param async whether to calculate explosions asynchronously
+	 * @return this builder
+	 */
+	public ExplosionConfigBuilder async(boolean async) {
+		this.async = async;
+		return this;
+	}
+	
 	public ExplosionConfig build() {
-		return new ExplosionConfig(legacy, tntEnabled, crystalEnabled, anchorEnabled);
+		return new ExplosionConfig(legacy, tntEnabled, crystalEnabled, anchorEnabled,
+				parallelRays, parallelRayStrength, tntMergeRadius, exposureSamples, packetDistance, async);
 	}
 }
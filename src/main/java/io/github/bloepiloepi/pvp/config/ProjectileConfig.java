@@ -16,10 +16,12 @@ public class ProjectileConfig extends ElementConfig<PlayerInstanceEvent> {
 	private final boolean
 			fishingRodEnabled, snowballEnabled, eggEnabled,
 			enderPearlEnabled, crossbowEnabled, bowEnabled;
+	private final boolean chunkPrefetch;
+	private final double chunkPrefetchDistance;
 	
 	ProjectileConfig(boolean legacy, boolean fishingRodEnabled, boolean snowballEnabled,
 	                        boolean eggEnabled, boolean enderPearlEnabled, boolean crossbowEnabled,
-	                        boolean bowEnabled) {
+	                        boolean bowEnabled, boolean chunkPrefetch, double chunkPrefetchDistance) {
 		super(legacy);
 		this.fishingRodEnabled = fishingRodEnabled;
 		this.snowballEnabled = snowballEnabled;
@@ -27,6 +29,8 @@ public class ProjectileConfig extends ElementConfig<PlayerInstanceEvent> {
 		this.enderPearlEnabled = enderPearlEnabled;
 		this.crossbowEnabled = crossbowEnabled;
 		this.bowEnabled = bowEnabled;
+		this.chunkPrefetch = chunkPrefetch;
+		this.chunkPrefetchDistance = chunkPrefetchDistance;
 	}
 	
 	public boolean isFishingRodEnabled() {
@@ -53,6 +57,20 @@ public class ProjectileConfig extends ElementConfig<PlayerInstanceEvent> {
 		return bowEnabled;
 	}
 	
+	/**
+	 * @return whether the chunks on the path of ender pearls and arrows are loaded when they are launched
+	 */
+	public boolean isChunkPrefetch() {
+		return chunkPrefetch;
+	}
+	
+	/**
+	 * @return the horizontal distance along the path of a projectile in which chunks are loaded
+	 */
+	public double getChunkPrefetchDistance() {
+		return chunkPrefetchDistance;
+	}
+	
 	@Override
 	public EventNode<PlayerInstanceEvent> createNode() {
 		return ProjectileListener.events(this);
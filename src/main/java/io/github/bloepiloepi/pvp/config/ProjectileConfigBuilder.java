@@ -5,6 +5,8 @@ public class ProjectileConfigBuilder {
 	private boolean
 			fishingRodEnabled, snowballEnabled, eggEnabled,
 			enderPearlEnabled, crossbowEnabled, bowEnabled;
+	private boolean chunkPrefetch;
+	private double chunkPrefetchDistance = 128;
 	
 	public ProjectileConfigBuilder(boolean legacy) {
 		this.legacy = legacy;
@@ -50,10 +52,28 @@ public class ProjectileConfigBuilder {
 		return this;
 	}
 	
+	/**
+	 * Loads the chunks an ender pearl or arrow will fly through when it is launched, before it reaches them.
+	 * The path is predicted from the velocity, drag and gravity of the projectile, and the chunks are loaded asynchronously.
+	 * Without this, projectiles are removed when they reach an unloaded chunk,
+	 * so ender pearls thrown into unloaded chunks never land.
+	 * Once the projectile is removed, the chunks loaded for it are unloaded again if no player views them and no entity is in them.
+	 *
+	 * @param chunkPrefetch whether to load the chunks on the path of projectiles
+	 * @param distance the horizontal distance along the path in which chunks are loaded
+	 * @return this builder
+	 */
+	public ProjectileConfigBuilder chunkPrefetch(boolean chunkPrefetch, double distance) {
+		this.chunkPrefetch = chunkPrefetch;
+		this.chunkPrefetchDistance = distance;
+		return this;
+	}
+	
 	public ProjectileConfig build() {
 		return new ProjectileConfig(
 				legacy, fishingRodEnabled, snowballEnabled, eggEnabled,
-				enderPearlEnabled, crossbowEnabled, bowEnabled
+				enderPearlEnabled, crossbowEnabled, bowEnabled,
+				chunkPrefetch, chunkPrefetchDistance
 		);
 	}
 }
@@ -1,7 +1,7 @@
 package io.github.bloepiloepi.pvp.damage;
 
 import io.github.bloepiloepi.pvp.entity.EntityUtils;
-import io.github.bloepiloepi.pvp.entity.Tracker;
+import io.github.bloepiloepi.pvp.entity.PvpState;
 import net.kyori.adventure.text.Component;
 import net.minestom.server.coordinate.Pos;
 import net.minestom.server.entity.Entity;
@@ -206,7 +206,7 @@ public class CustomDamageType extends DamageType {
 	
 	@Override
 	public @Nullable Component buildDeathMessage(@NotNull Player killed) {
-		return Tracker.combatManager.get(killed.getUuid()).getDeathMessage();
+		return PvpState.getOrCreate(killed).getCombatManager().getDeathMessage();
 	}
 	
 	@Override
@@ -281,9 +281,10 @@ public class CustomDamageType extends DamageType {
 	}
 	
 	public static @Nullable LivingEntity getKillCredit(@NotNull Player killed) {
-		LivingEntity killer = Tracker.combatManager.get(killed.getUuid()).getKiller();
+		PvpState state = PvpState.getOrCreate(killed);
+		LivingEntity killer = state.getCombatManager().getKiller();
 		if (killer == null) {
-			killer = Tracker.lastDamagedBy.get(killed.getUuid());
+			killer = state.getLastDamagedBy();
 		}
 		
 		return killer;
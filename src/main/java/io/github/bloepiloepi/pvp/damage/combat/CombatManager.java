@@ -2,7 +2,9 @@ package io.github.bloepiloepi.pvp.damage.combat;
 
 import io.github.bloepiloepi.pvp.damage.CustomDamageType;
 import io.github.bloepiloepi.pvp.entity.EntityUtils;
-import io.github.bloepiloepi.pvp.entity.Tracker;
+import io.github.bloepiloepi.pvp.entity.PvpState;
+import io.github.bloepiloepi.pvp.utils.BlockProperties;
+import io.github.bloepiloepi.pvp.utils.CombatClock;
 import net.kyori.adventure.text.Component;
 import net.minestom.server.MinecraftServer;
 import net.minestom.server.entity.Entity;
@@ -17,6 +19,10 @@ import org.jetbrains.annotations.Nullable;
 import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * Keeps track of the combat entries of a player.
+ * Damage can be recorded from any thread, so all access to the entries is synchronized.
+ */
 public class CombatManager {
 	private final List<CombatEntry> entries = new ArrayList<>();
 	private final Player player;
@@ -33,64 +39,35 @@ public class CombatManager {
 	
 	public void prepareForDamage() {
 		nextFallLocation = null;
-		Block lastClimbedBlock = Tracker.lastClimbedBlock.get(player.getUuid());
+		Block lastClimbedBlock = PvpState.getOrCreate(player).getLastClimbedBlock();
 		if (lastClimbedBlock == null) {
 			//TODO check for water at feet
 			return;
 		}
 		
-		if (lastClimbedBlock == Block.LADDER || lastClimbedBlock == Block.ACACIA_TRAPDOOR
-				|| lastClimbedBlock == Block.BIRCH_TRAPDOOR || lastClimbedBlock == Block.CRIMSON_TRAPDOOR
-				|| lastClimbedBlock == Block.IRON_TRAPDOOR || lastClimbedBlock == Block.DARK_OAK_TRAPDOOR
-				|| lastClimbedBlock == Block.JUNGLE_TRAPDOOR || lastClimbedBlock == Block.OAK_TRAPDOOR
-				|| lastClimbedBlock == Block.SPRUCE_TRAPDOOR || lastClimbedBlock == Block.WARPED_TRAPDOOR) {
-			nextFallLocation = "ladder";
-			return;
-		}
-		
-		if (lastClimbedBlock == Block.VINE) {
-			nextFallLocation = "vines";
-			return;
-		}
-		
-		if (lastClimbedBlock == Block.WEEPING_VINES || lastClimbedBlock == Block.WEEPING_VINES_PLANT) {
-			nextFallLocation = "weeping_vines";
-			return;
-		}
-		
-		if (lastClimbedBlock == Block.TWISTING_VINES || lastClimbedBlock == Block.TWISTING_VINES_PLANT) {
-			nextFallLocation = "twisting_vines";
-			return;
-		}
-		
-		if (lastClimbedBlock == Block.SCAFFOLDING) {
-			nextFallLocation = "scaffolding";
-			return;
-		}
-		
-		nextFallLocation = "other_climbable";
+		nextFallLocation = BlockProperties.getClimbLocation(lastClimbedBlock);
 	}
 	
-	public void recordDamage(CustomDamageType damageType, float damage) {
+	public synchronized void recordDamage(CustomDamageType damageType, float damage) {
 		recheckStatus();
 		prepareForDamage();
 		
-		CombatEntry entry = new CombatEntry(damageType, damage, nextFallLocation, Tracker.fallDistance.get(player.getUuid()));
+		CombatEntry entry = new CombatEntry(damageType, damage, nextFallLocation, PvpState.getOrCreate(player).getFallDistance());
 		entries.add(entry);
 		
-		lastDamageTime = System.currentTimeMillis();
+		lastDamageTime = CombatClock.get().getMillis();
 		takingDamage = true;
 		
 		if (entry.isCombat() && !inCombat && !player.isDead()) {
 			inCombat = true;
-			combatStartTime = System.currentTimeMillis();
+			combatStartTime = CombatClock.get().getMillis();
 			combatEndTime = combatStartTime;
 			
 			onEnterCombat();
 		}
 	}
 	
-	public Component getDeathMessage() {
+	public synchronized Component getDeathMessage() {
 		if (entries.isEmpty()) {
 			return Component.translatable("death.attack.generic", getEntityName());
 		}
@@ -134,7 +111,7 @@ public class CombatManager {
 		}
 	}
 	
-	public @Nullable LivingEntity getKiller() {
+	public synchronized @Nullable LivingEntity getKiller() {
 		LivingEntity entity = null;
 		Player player = null;
 		float livingDamage = 0.0F;
@@ -158,7 +135,7 @@ public class CombatManager {
 		return entity;
 	}
 	
-	public @Nullable CombatEntry getHeaviestFall() {
+	public synchronized @Nullable CombatEntry getHeaviestFall() {
 		CombatEntry mostDamageEntry = null;
 		CombatEntry highestFallEntry = null;
 		float mostDamage = 0.0F;
@@ -194,19 +171,19 @@ public class CombatManager {
 	}
 	
 	public long getCombatDuration() {
-		return inCombat ? System.currentTimeMillis() - combatStartTime : combatEndTime - combatStartTime;
+		return inCombat ? CombatClock.get().getMillis() - combatStartTime : combatEndTime - combatStartTime;
 	}
 	
-	public void recheckStatus() {
+	public synchronized void recheckStatus() {
 		// Check if combat should end
 		int idleMillis = inCombat ? 300 * MinecraftServer.TICK_MS : 100 * MinecraftServer.TICK_MS;
-		if (takingDamage && (player.isDead() || System.currentTimeMillis() - lastDamageTime > idleMillis)) {
+		if (takingDamage && (player.isDead() || CombatClock.get().getMillis() - lastDamageTime > idleMillis)) {
 			reset();
-			combatEndTime = System.currentTimeMillis();
+			combatEndTime = CombatClock.get().getMillis();
 		}
 	}
 	
-	public void reset() {
+	public synchronized void reset() {
 		boolean wasInCombat = inCombat;
 		takingDamage = false;
 		inCombat = false;
@@ -21,6 +21,8 @@ public class CustomEnchantments {
 		for (CustomEnchantment enchantment : enchantments) {
 			ENCHANTMENTS.put(enchantment.getEnchantment(), enchantment);
 		}
+		
+		WeaponProfile.clearCache();
 	}
 	
 	public static void registerAll() {
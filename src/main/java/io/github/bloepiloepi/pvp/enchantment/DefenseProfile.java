@@ -0,0 +1,110 @@
+package io.github.bloepiloepi.pvp.enchantment;
+
+import io.github.bloepiloepi.pvp.damage.CustomDamageType;
+import io.github.bloepiloepi.pvp.entity.PvpState;
+import net.minestom.server.entity.EquipmentSlot;
+import net.minestom.server.entity.LivingEntity;
+import net.minestom.server.item.Enchantment;
+import net.minestom.server.item.ItemStack;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The enchantment related defense of the armor an entity is wearing.
+ * <p>
+ * The profile is kept in the {@link PvpState} of the entity and remembers which armor stacks it was built from.
+ * Item stacks are immutable, so equipping armor or damaging it always results in a different stack,
+ * in which case the profile is rebuilt the next time it is requested.
+ * <p>
+ * Protection amounts are cached per damage category (fire, fall, explosion, projectile and out of world),
+ * so protection enchantments are expected to only depend on these categories.
+ */
+public class DefenseProfile {
+	private static final EquipmentSlot[] ARMOR_SLOTS = new EquipmentSlot[] {
+			EquipmentSlot.HELMET, EquipmentSlot.CHESTPLATE,
+			EquipmentSlot.LEGGINGS, EquipmentSlot.BOOTS
+	};
+	
+	private final ItemStack[] armor = new ItemStack[ARMOR_SLOTS.length];
+	private final List<ItemStack> armorItems = new ArrayList<>();
+	private final int[] protectionAmounts = new int[32];
+	private final short blastProtection;
+	private final short fireProtection;
+	
+	private DefenseProfile(LivingEntity entity) {
+		for (int i = 0; i < ARMOR_SLOTS.length; i++) {
+			ItemStack stack = entity.getEquipment(ARMOR_SLOTS[i]);
+			armor[i] = stack;
+			if (!stack.isAir()) armorItems.add(stack);
+		}
+		
+		Arrays.fill(protectionAmounts, -1);
+		this.blastProtection = EnchantmentUtils.getEquipmentLevel(CustomEnchantments.get(Enchantment.BLAST_PROTECTION), entity);
+		this.fireProtection = EnchantmentUtils.getEquipmentLevel(CustomEnchantments.get(Enchantment.FIRE_PROTECTION), entity);
+	}
+	
+	/**
+	 * Gets the defense profile of an entity, rebuilding it if the armor of the entity changed.
+	 *
+	 * @param entity the entity
+	 * @return the defense profile of the entity
+	 */
+	public static @NotNull DefenseProfile of(@NotNull LivingEntity entity) {
+		PvpState state = PvpState.getOrCreate(entity);
+		DefenseProfile profile = state.getDefenseProfile();
+		if (profile == null || !profile.isWornBy(entity)) {
+			profile = new DefenseProfile(entity);
+			state.setDefenseProfile(profile);
+		}
+		
+		return profile;
+	}
+	
+	private boolean isWornBy(LivingEntity entity) {
+		for (int i = 0; i < ARMOR_SLOTS.length; i++) {
+			if (entity.getEquipment(ARMOR_SLOTS[i]) != armor[i]) return false;
+		}
+		
+		return true;
+	}
+	
+	public int getProtectionAmount(CustomDamageType type) {
+		int category = (type.isFire() ? 1 : 0) | (type.isFall() ? 2 : 0) | (type.isExplosive() ? 4 : 0)
+				| (type.isProjectile() ? 8 : 0) | (type.isOutOfWorld() ? 16 : 0);
+		
+		int amount = protectionAmounts[category];
+		if (amount < 0) {
+			amount = EnchantmentUtils.getProtectionAmount(armorItems, type);
+			protectionAmounts[category] = amount;
+		}
+		
+		return amount;
+	}
+	
+	public double getExplosionKnockback(double strength) {
+		if (blastProtection > 0) {
+			strength -= Math.floor((strength * (double) (blastProtection * 0.15F)));
+		}
+		
+		return strength;
+	}
+	
+	public int transformFireDuration(int duration) {
+		if (fireProtection > 0) {
+			duration -= Math.floor((float) duration * (float) fireProtection * 0.15F);
+		}
+		
+		return duration;
+	}
+	
+	public short getBlastProtection() {
+		return blastProtection;
+	}
+	
+	public short getFireProtection() {
+		return fireProtection;
+	}
+}
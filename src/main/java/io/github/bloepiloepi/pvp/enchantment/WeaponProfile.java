@@ -0,0 +1,109 @@
+package io.github.bloepiloepi.pvp.enchantment;
+
+import io.github.bloepiloepi.pvp.entity.EntityGroup;
+import io.github.bloepiloepi.pvp.enums.Tool;
+import net.minestom.server.item.Enchantment;
+import net.minestom.server.item.ItemStack;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * The combat related properties of an item held in the main hand.
+ * <p>
+ * Item stacks are immutable, so a profile never changes once it is computed.
+ * Profiles are cached by stack identity, so hitting repeatedly with the same stack only does a few field reads.
+ */
+public class WeaponProfile {
+	private static final int CACHE_SIZE = 512;
+	private static final CacheEntry[] CACHE = new CacheEntry[CACHE_SIZE];
+	
+	private static final EntityGroup[] GROUPS = EntityGroup.values();
+	
+	private final Tool tool;
+	private final float[] attackDamage;
+	private final float[] legacyAttackDamage;
+	private final int knockback;
+	private final int fireAspect;
+	private final float sweepingMultiplier;
+	private final int unbreaking;
+	
+	private WeaponProfile(ItemStack stack) {
+		this.tool = Tool.fromMaterial(stack.material());
+		
+		this.attackDamage = new float[GROUPS.length];
+		this.legacyAttackDamage = new float[GROUPS.length];
+		for (EntityGroup group : GROUPS) {
+			attackDamage[group.ordinal()] = EnchantmentUtils.getAttackDamage(stack, group, false);
+			legacyAttackDamage[group.ordinal()] = EnchantmentUtils.getAttackDamage(stack, group, true);
+		}
+		
+		this.knockback = EnchantmentUtils.getLevel(Enchantment.KNOCKBACK, stack);
+		this.fireAspect = EnchantmentUtils.getLevel(Enchantment.FIRE_ASPECT, stack);
+		this.unbreaking = EnchantmentUtils.getLevel(Enchantment.UNBREAKING, stack);
+		
+		int sweeping = EnchantmentUtils.getLevel(Enchantment.SWEEPING, stack);
+		this.sweepingMultiplier = sweeping <= 0 ? 0.0F : 1.0F - 1.0F / (float) (sweeping + 1);
+	}
+	
+	/**
+	 * Gets the profile of an item stack, computing it if it is not cached yet.
+	 *
+	 * @param stack the item stack
+	 * @return the profile of the item stack
+	 */
+	public static @NotNull WeaponProfile of(@NotNull ItemStack stack) {
+		int index = System.identityHashCode(stack) & (CACHE_SIZE - 1);
+		CacheEntry entry = CACHE[index];
+		if (entry != null && entry.stack() == stack) return entry.profile();
+		
+		WeaponProfile profile = new WeaponProfile(stack);
+		CACHE[index] = new CacheEntry(stack, profile);
+		return profile;
+	}
+	
+	/**
+	 * Clears the profile cache, needed when custom enchantments are registered after profiles were computed.
+	 */
+	public static void clearCache() {
+		for (int i = 0; i < CACHE_SIZE; i++) {
+			CACHE[i] = null;
+		}
+	}
+	
+	public @Nullable Tool getTool() {
+		return tool;
+	}
+	
+	public boolean isSword() {
+		return tool != null && tool.isSword();
+	}
+	
+	public boolean isAxe() {
+		return tool != null && tool.isAxe();
+	}
+	
+	/**
+	 * @return the extra damage the enchantments of this item deal to the given entity group
+	 */
+	public float getAttackDamage(EntityGroup group, boolean legacy) {
+		return (legacy ? legacyAttackDamage : attackDamage)[group.ordinal()];
+	}
+	
+	public int getKnockback() {
+		return knockback;
+	}
+	
+	public int getFireAspect() {
+		return fireAspect;
+	}
+	
+	public float getSweepingMultiplier() {
+		return sweepingMultiplier;
+	}
+	
+	public int getUnbreaking() {
+		return unbreaking;
+	}
+	
+	private record CacheEntry(ItemStack stack, WeaponProfile profile) {}
+}
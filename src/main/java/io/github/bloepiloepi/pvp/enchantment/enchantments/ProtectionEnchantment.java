@@ -2,8 +2,7 @@ package io.github.bloepiloepi.pvp.enchantment.enchantments;
 
 import io.github.bloepiloepi.pvp.damage.CustomDamageType;
 import io.github.bloepiloepi.pvp.enchantment.CustomEnchantment;
-import io.github.bloepiloepi.pvp.enchantment.CustomEnchantments;
-import io.github.bloepiloepi.pvp.enchantment.EnchantmentUtils;
+import io.github.bloepiloepi.pvp.enchantment.DefenseProfile;
 import net.minestom.server.entity.EquipmentSlot;
 import net.minestom.server.entity.LivingEntity;
 import net.minestom.server.item.Enchantment;
@@ -34,12 +33,7 @@ public class ProtectionEnchantment extends CustomEnchantment {
 	}
 	
 	public static int transformFireDuration(LivingEntity entity, int duration) {
-		short level = EnchantmentUtils.getEquipmentLevel(CustomEnchantments.get(Enchantment.FIRE_PROTECTION), entity);
-		if (level > 0) {
-			duration -= Math.floor((float) duration * (float) level * 0.15F);
-		}
-		
-		return duration;
+		return DefenseProfile.of(entity).transformFireDuration(duration);
 	}
 	
 	public enum Type {
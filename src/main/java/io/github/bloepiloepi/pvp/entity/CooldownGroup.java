@@ -0,0 +1,19 @@
+package io.github.bloepiloepi.pvp.entity;
+
+import net.minestom.server.item.Material;
+
+import java.util.Set;
+
+/**
+ * A group of materials which share a cooldown, e.g. all types of pearls.
+ * The client shows cooldowns per material, so a group cooldown is applied to every material in it.
+ */
+public record CooldownGroup(Set<Material> materials) {
+	public CooldownGroup {
+		materials = Set.copyOf(materials);
+	}
+	
+	public static CooldownGroup of(Material... materials) {
+		return new CooldownGroup(Set.of(materials));
+	}
+}
@@ -0,0 +1,140 @@
+package io.github.bloepiloepi.pvp.entity;
+
+import io.github.bloepiloepi.pvp.utils.CombatClock;
+import net.minestom.server.entity.Player;
+import net.minestom.server.item.Material;
+import net.minestom.server.network.packet.server.play.SetCooldownPacket;
+
+import java.util.*;
+
+/**
+ * Manages the item cooldowns of players.
+ * <p>
+ * Cooldowns are stored in the {@link PvpState} of a player as the {@link CombatClock} tick at which they end.
+ * Expirations are scheduled in a timing wheel, so every tick only visits the cooldowns ending in that tick.
+ * Cooldowns which end too far in the future for the wheel wait in a queue until they fit.
+ */
+public class CooldownManager {
+	private static final int WHEEL_SIZE = 256;
+	
+	@SuppressWarnings("unchecked")
+	private static final List<Expiry>[] wheel = new List[WHEEL_SIZE];
+	private static final PriorityQueue<Expiry> overflow = new PriorityQueue<>(Comparator.comparingLong(Expiry::endTick));
+	private static long processedTick = CombatClock.get().getTick();
+	
+	public static void setCooldown(Player player, Material material, int durationTicks) {
+		if (durationTicks <= 0) {
+			cancelCooldown(player, material);
+			return;
+		}
+		
+		PvpState state = PvpState.getOrCreate(player);
+		synchronized (CooldownManager.class) {
+			long endTick = CombatClock.get().getTick() + durationTicks;
+			state.getCooldownEnd().put(material, endTick);
+			schedule(new Expiry(state, material, endTick));
+		}
+		
+		sendCooldown(player, material, durationTicks);
+	}
+	
+	public static void setCooldown(Player player, CooldownGroup group, int durationTicks) {
+		for (Material material : group.materials()) {
+			setCooldown(player, material, durationTicks);
+		}
+	}
+	
+	/**
+	 * Gets the amount of ticks left before the cooldown of a material ends.
+	 *
+	 * @param player the player
+	 * @param material the material
+	 * @return the amount of ticks left, or 0 if there is no cooldown
+	 */
+	public static int getRemainingTicks(Player player, Material material) {
+		PvpState state = PvpState.get(player);
+		if (state == null) return 0;
+		
+		Long endTick = state.getCooldownEnd().get(material);
+		return endTick == null ? 0 : (int) Math.max(0, endTick - CombatClock.get().getTick());
+	}
+	
+	public static boolean hasCooldown(Player player, Material material) {
+		return getRemainingTicks(player, material) > 0;
+	}
+	
+	public static boolean hasCooldown(Player player, CooldownGroup group) {
+		for (Material material : group.materials()) {
+			if (hasCooldown(player, material)) return true;
+		}
+		
+		return false;
+	}
+	
+	public static void cancelCooldown(Player player, Material material) {
+		PvpState state = PvpState.get(player);
+		if (state != null && state.getCooldownEnd().remove(material) != null) {
+			sendCooldown(player, material, 0);
+		}
+	}
+	
+	public static void cancelCooldown(Player player, CooldownGroup group) {
+		for (Material material : group.materials()) {
+			cancelCooldown(player, material);
+		}
+	}
+	
+	private static void schedule(Expiry expiry) {
+		if (expiry.endTick() - processedTick < WHEEL_SIZE) {
+			int slot = (int) (expiry.endTick() % WHEEL_SIZE);
+			if (wheel[slot] == null) wheel[slot] = new ArrayList<>();
+			wheel[slot].add(expiry);
+		} else {
+			overflow.add(expiry);
+		}
+	}
+	
+	/**
+	 * Removes the cooldowns which ended since the last call, up to the current tick of the {@link CombatClock}.
+	 */
+	static void tick() {
+		List<Expiry> expired = null;
+		synchronized (CooldownManager.class) {
+			long currentTick = CombatClock.get().getTick();
+			while (processedTick < currentTick) {
+				processedTick++;
+				while (!overflow.isEmpty() && overflow.peek().endTick() - processedTick < WHEEL_SIZE) {
+					schedule(overflow.poll());
+				}
+				
+				int slot = (int) (processedTick % WHEEL_SIZE);
+				if (wheel[slot] != null) {
+					if (expired == null) {
+						expired = wheel[slot];
+					} else {
+						expired.addAll(wheel[slot]);
+					}
+					wheel[slot] = null;
+				}
+			}
+		}
+		
+		if (expired == null) return;
+		
+		// Packets are sent outside the lock
+		for (Expiry expiry : expired) {
+			// The cooldown might have been cancelled or replaced by a newer one
+			if (!expiry.state().getCooldownEnd().remove(expiry.material(), expiry.endTick())) continue;
+			
+			Player player = (Player) expiry.state().getEntity();
+			if (player.isOnline()) sendCooldown(player, expiry.material(), 0);
+		}
+	}
+	
+	@SuppressWarnings("UnstableApiUsage")
+	private static void sendCooldown(Player player, Material material, int durationTicks) {
+		player.getPlayerConnection().sendPacket(new SetCooldownPacket(material.id(), durationTicks));
+	}
+	
+	private record Expiry(PvpState state, Material material, long endTick) {}
+}
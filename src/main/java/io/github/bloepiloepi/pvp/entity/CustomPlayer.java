@@ -14,6 +14,7 @@ import java.util.UUID;
 
 @SuppressWarnings("UnstableApiUsage")
 public class CustomPlayer extends Player implements PvpPlayer {
+	volatile PvpState pvpState;
 	
 	public CustomPlayer(@NotNull UUID uuid, @NotNull String username, @NotNull PlayerConnection playerConnection) {
 		super(uuid, username, playerConnection);
@@ -24,8 +25,7 @@ public class CustomPlayer extends Player implements PvpPlayer {
 	}
 	
 	public double getJumpBoostVelocityModifier() {
-		return EntityUtils.hasEffect(this, PotionEffect.JUMP_BOOST) ?
-				(0.1 * (EntityUtils.getEffect(this, PotionEffect.JUMP_BOOST).amplifier() + 1)) : 0.0;
+		return 0.1 * (EntityUtils.getAmplifier(this, PotionEffect.JUMP_BOOST) + 1);
 	}
 	
 	@Override
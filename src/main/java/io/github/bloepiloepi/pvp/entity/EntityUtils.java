@@ -2,10 +2,12 @@ package io.github.bloepiloepi.pvp.entity;
 
 import io.github.bloepiloepi.pvp.damage.CustomDamageType;
 import io.github.bloepiloepi.pvp.enchantment.EnchantmentUtils;
+import io.github.bloepiloepi.pvp.enchantment.WeaponProfile;
 import io.github.bloepiloepi.pvp.enchantment.enchantments.ProtectionEnchantment;
-import io.github.bloepiloepi.pvp.enums.Tool;
 import io.github.bloepiloepi.pvp.potion.PotionListener;
 import io.github.bloepiloepi.pvp.projectile.Arrow;
+import io.github.bloepiloepi.pvp.utils.BlockProperties;
+import io.github.bloepiloepi.pvp.utils.CombatClock;
 import it.unimi.dsi.fastutil.Pair;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.event.HoverEvent;
@@ -41,13 +43,32 @@ import java.util.function.Predicate;
 public class EntityUtils {
 	
 	public static boolean hasEffect(Entity entity, PotionEffect type) {
+		PvpState state = PvpState.get(entity);
+		if (state != null) return state.getEffectIndex().has(type);
+		
 		return entity.getActiveEffects().stream().anyMatch((effect) -> effect.getPotion().effect() == type);
 	}
 	
+	/**
+	 * @return the amplifier of the effect, or -1 if the entity does not have the effect
+	 */
+	public static int getAmplifier(Entity entity, PotionEffect type) {
+		PvpState state = PvpState.get(entity);
+		if (state != null) return state.getEffectIndex().getAmplifier(type);
+		
+		return hasEffect(entity, type) ? getEffect(entity, type).amplifier() : -1;
+	}
+	
 	public static Potion getEffect(Entity entity, PotionEffect type) {
-		for (TimedPotion potion : entity.getActiveEffects()) {
-			if (potion.getPotion().effect() == type) {
-				return potion.getPotion();
+		PvpState state = PvpState.get(entity);
+		if (state != null) {
+			Potion potion = state.getEffectIndex().get(type);
+			if (potion != null) return potion;
+		} else {
+			for (TimedPotion potion : entity.getActiveEffects()) {
+				if (potion.getPotion().effect() == type) {
+					return potion.getPotion();
+				}
 			}
 		}
 		
@@ -70,7 +91,7 @@ public class EntityUtils {
 		if (duration.toMillis() > 0) {
 			EventDispatcher.callCancellable(entityFireEvent, () -> entity.setOnFire(true));
 		}
-		// Tracker.fireExtinguishTime is updated by event listener
+		// PvpState#fireExtinguishTime is updated by event listener
 	}
 	
 	public static void setOnFireForSeconds(Entity entity, int seconds) {
@@ -83,8 +104,9 @@ public class EntityUtils {
 		}
 		int millis = ticks * MinecraftServer.TICK_MS;
 		
-		long fireExtinguishTime = Tracker.fireExtinguishTime.getOrDefault(entity.getUuid(), 0L);
-		if (System.currentTimeMillis() + millis > fireExtinguishTime) {
+		PvpState state = PvpState.get(entity);
+		long fireExtinguishTime = state == null ? 0L : state.getFireExtinguishTime();
+		if (CombatClock.get().getMillis() + millis > fireExtinguishTime) {
 			setFireForDuration(entity, millis, TimeUnit.MILLISECOND);
 		}
 	}
@@ -158,8 +180,7 @@ public class EntityUtils {
 		
 		if (!(entity instanceof Player)) return;
 		
-		Tool tool = Tool.fromMaterial(attacker.getItemInMainHand().material());
-		if (tool != null && tool.isAxe()) {
+		if (WeaponProfile.of(attacker.getItemInMainHand()).isAxe()) {
 			disableShield((Player) entity, true); //For some reason the vanilla server always passes true
 		}
 	}
@@ -171,7 +192,7 @@ public class EntityUtils {
 		}
 		
 		if (ThreadLocalRandom.current().nextFloat() < chance) {
-			Tracker.setCooldown(player, Material.SHIELD, 100);
+			CooldownManager.setCooldown(player, Material.SHIELD, 100);
 			
 			//Shield disable status
 			player.triggerStatus((byte) 30);
@@ -195,7 +216,7 @@ public class EntityUtils {
 	
 	public static void addExhaustion(Player player, float exhaustion) {
 		if (!player.isInvulnerable() && player.getGameMode().canTakeDamage() && player.isOnline()) {
-			Tracker.hungerManager.get(player.getUuid()).addExhaustion(exhaustion);
+			PvpState.getOrCreate(player).getHungerManager().addExhaustion(exhaustion);
 		}
 	}
 	
@@ -204,13 +225,7 @@ public class EntityUtils {
 		if (entity instanceof Player player && player.getGameMode() == GameMode.SPECTATOR) return false;
 		
 		Block block = Objects.requireNonNull(entity.getInstance()).getBlock(entity.getPosition());
-		return block.compare(Block.LADDER) || block.compare(Block.VINE) || block.compare(Block.TWISTING_VINES)
-				|| block.compare(Block.TWISTING_VINES_PLANT) || block.compare(Block.WEEPING_VINES)
-				|| block.compare(Block.WEEPING_VINES_PLANT) || block.compare(Block.ACACIA_TRAPDOOR)
-				|| block.compare(Block.BIRCH_TRAPDOOR) || block.compare(Block.CRIMSON_TRAPDOOR)
-				|| block.compare(Block.DARK_OAK_TRAPDOOR) || block.compare(Block.IRON_TRAPDOOR)
-				|| block.compare(Block.JUNGLE_TRAPDOOR) || block.compare(Block.OAK_TRAPDOOR)
-				|| block.compare(Block.SPRUCE_TRAPDOOR) || block.compare(Block.WARPED_TRAPDOOR);
+		return BlockProperties.isClimbable(block);
 	}
 	
 	public static double getBodyY(Entity entity, double heightScale) {
@@ -218,9 +233,7 @@ public class EntityUtils {
 	}
 	
 	public static boolean hasPotionEffect(LivingEntity entity, PotionEffect effect) {
-		return entity.getActiveEffects().stream()
-				.map((potion) -> potion.getPotion().effect())
-				.anyMatch((potionEffect) -> potionEffect == effect);
+		return hasEffect(entity, effect);
 	}
 	
 	public static @Nullable ItemEntity spawnItemAtLocation(Entity entity, ItemStack itemStack, double up) {
@@ -0,0 +1,334 @@
+package io.github.bloepiloepi.pvp.entity;
+
+import io.github.bloepiloepi.pvp.damage.combat.CombatManager;
+import io.github.bloepiloepi.pvp.enchantment.DefenseProfile;
+import io.github.bloepiloepi.pvp.food.HungerManager;
+import io.github.bloepiloepi.pvp.potion.EffectIndex;
+import io.github.bloepiloepi.pvp.utils.CombatClock;
+import net.minestom.server.entity.Entity;
+import net.minestom.server.entity.LivingEntity;
+import net.minestom.server.entity.Player;
+import net.minestom.server.instance.block.Block;
+import net.minestom.server.item.ItemStack;
+import net.minestom.server.item.Material;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Holds all the PvP related state of a single entity.
+ * Players get their state when they log in, other living entities when they are added to an instance.
+ * States are created and destroyed by the {@link Tracker} listeners.
+ * <p>
+ * Entities in different instances may tick on different threads and damage each other,
+ * so all fields are volatile. The invulnerability after taking damage is checked and started
+ * in a single atomic step, see {@link #tryHit(long, float, int, int)}.
+ * Tick counters are stored as the {@link CombatClock} tick at which they started or end,
+ * so they don't have to be updated every tick.
+ */
+public class PvpState {
+	private static final Map<UUID, PvpState> STATES = new ConcurrentHashMap<>();
+	private static final Invulnerability NOT_INVULNERABLE = new Invulnerability(0, 0);
+	
+	private final Entity entity;
+	private final HungerManager hungerManager;
+	private final CombatManager combatManager;
+	private final Map<Material, Long> cooldownEnd;
+	private final EffectIndex effectIndex;
+	
+	private volatile long lastAttackTick;
+	private final AtomicReference<Invulnerability> invulnerability = new AtomicReference<>(NOT_INVULNERABLE);
+	private volatile double fallDistance;
+	private volatile long itemUseStartTime;
+	private volatile long lastDamageTime;
+	private volatile long fireExtinguishTime;
+	private volatile long lastSwingTime;
+	private volatile boolean blockingSword;
+	private volatile Entity spectating;
+	private volatile Player.Hand itemUseHand;
+	private volatile Block lastClimbedBlock;
+	private volatile LivingEntity lastDamagedBy;
+	private volatile ItemStack blockReplacementItem;
+	private volatile DefenseProfile defenseProfile;
+	
+	private PvpState(Entity entity) {
+		this.entity = entity;
+		this.lastAttackTick = CombatClock.get().getTick();
+		this.effectIndex = new EffectIndex(entity);
+		
+		if (entity instanceof Player player) {
+			this.hungerManager = new HungerManager(player);
+			this.combatManager = new CombatManager(player);
+			this.cooldownEnd = new ConcurrentHashMap<>();
+			this.spectating = player;
+		} else {
+			this.hungerManager = null;
+			this.combatManager = null;
+			this.cooldownEnd = null;
+		}
+	}
+	
+	/**
+	 * Gets the state of an entity, or null if it has none.
+	 *
+	 * @param entity the entity
+	 * @return the state of the entity
+	 */
+	public static @Nullable PvpState get(@NotNull Entity entity) {
+		if (entity instanceof CustomPlayer custom && custom.pvpState != null) return custom.pvpState;
+		return STATES.get(entity.getUuid());
+	}
+	
+	/**
+	 * Gets the state of the entity with the given uuid, or null if it has none.
+	 *
+	 * @param uuid the uuid of the entity
+	 * @return the state of the entity
+	 */
+	public static @Nullable PvpState get(@NotNull UUID uuid) {
+		return STATES.get(uuid);
+	}
+	
+	/**
+	 * Gets the state of an entity, creating it if it does not exist yet.
+	 *
+	 * @param entity the entity
+	 * @return the state of the entity
+	 */
+	public static @NotNull PvpState getOrCreate(@NotNull Entity entity) {
+		PvpState state = get(entity);
+		return state != null ? state : create(entity);
+	}
+	
+	static @NotNull PvpState create(@NotNull Entity entity) {
+		PvpState state = STATES.computeIfAbsent(entity.getUuid(), uuid -> new PvpState(entity));
+		if (entity instanceof CustomPlayer custom) custom.pvpState = state;
+		return state;
+	}
+	
+	static void destroy(@NotNull Entity entity) {
+		STATES.remove(entity.getUuid());
+		if (entity instanceof CustomPlayer custom) custom.pvpState = null;
+	}
+	
+	static Collection<PvpState> all() {
+		return STATES.values();
+	}
+	
+	public Entity getEntity() {
+		return entity;
+	}
+	
+	/**
+	 * @return the hunger manager, only present for players
+	 */
+	public HungerManager getHungerManager() {
+		return hungerManager;
+	}
+	
+	/**
+	 * @return the combat manager, only present for players
+	 */
+	public CombatManager getCombatManager() {
+		return combatManager;
+	}
+	
+	/**
+	 * @return the tick at which the cooldown ends per material, only present for players
+	 * @see CooldownManager
+	 */
+	public Map<Material, Long> getCooldownEnd() {
+		return cooldownEnd;
+	}
+	
+	public EffectIndex getEffectIndex() {
+		return effectIndex;
+	}
+	
+	/**
+	 * @return the amount of ticks since the last attack
+	 */
+	public int getLastAttackedTicks() {
+		return (int) Math.min(CombatClock.get().getTick() - lastAttackTick, Integer.MAX_VALUE);
+	}
+	
+	public void setLastAttackedTicks(int lastAttackedTicks) {
+		this.lastAttackTick = CombatClock.get().getTick() - lastAttackedTicks;
+	}
+	
+	/**
+	 * @return the amount of ticks left before the invulnerability ends
+	 */
+	public int getInvulnerableTime() {
+		return (int) Math.max(invulnerability.get().endTick() - CombatClock.get().getTick(), 0);
+	}
+	
+	public void setInvulnerableTime(int invulnerableTime) {
+		long endTick = CombatClock.get().getTick() + invulnerableTime;
+		invulnerability.updateAndGet(current -> new Invulnerability(endTick, current.lastDamage()));
+	}
+	
+	public float getLastDamageTaken() {
+		return invulnerability.get().lastDamage();
+	}
+	
+	public void setLastDamageTaken(float lastDamageTaken) {
+		invulnerability.updateAndGet(current -> new Invulnerability(current.endTick(), lastDamageTaken));
+	}
+	
+	/**
+	 * Records a hit against the invulnerability of the entity.
+	 * If more than {@code threshold} ticks of invulnerability are left, only damage above the last damage taken
+	 * gets through and the invulnerability is not extended. Otherwise, a new invulnerability of {@code ticks} ticks starts.
+	 * <p>
+	 * Checking and updating happen in a single compare-and-set, so when several attackers hit the entity
+	 * at the same time from different threads, only one of them starts the invulnerability
+	 * and the others are checked against its damage.
+	 *
+	 * @param now the current tick of the {@link CombatClock}
+	 * @param damage the damage of the hit
+	 * @param ticks the length of a new invulnerability
+	 * @param threshold the amount of ticks left above which the entity is invulnerable
+	 * @return the recorded hit, or null if the hit does not deal more damage than the last one
+	 */
+	public @Nullable Hit tryHit(long now, float damage, int ticks, int threshold) {
+		while (true) {
+			Invulnerability previous = invulnerability.get();
+			boolean full = previous.endTick() - now <= threshold;
+			if (!full && damage <= previous.lastDamage()) return null;
+			
+			Invulnerability current = new Invulnerability(full ? now + ticks : previous.endTick(), damage);
+			if (invulnerability.compareAndSet(previous, current)) return new Hit(previous, current, full);
+		}
+	}
+	
+	/**
+	 * Reverts a hit which was cancelled after it was recorded.
+	 * Nothing happens if another hit was recorded in the meantime, since that hit was checked against this one.
+	 *
+	 * @param hit the hit returned by {@link #tryHit(long, float, int, int)}
+	 */
+	public void undoHit(@NotNull Hit hit) {
+		invulnerability.compareAndSet(hit.current(), hit.previous());
+	}
+	
+	public double getFallDistance() {
+		return fallDistance;
+	}
+	
+	public void setFallDistance(double fallDistance) {
+		this.fallDistance = fallDistance;
+	}
+	
+	public long getItemUseStartTime() {
+		return itemUseStartTime;
+	}
+	
+	public void setItemUseStartTime(long itemUseStartTime) {
+		this.itemUseStartTime = itemUseStartTime;
+	}
+	
+	public long getLastDamageTime() {
+		return lastDamageTime;
+	}
+	
+	public void setLastDamageTime(long lastDamageTime) {
+		this.lastDamageTime = lastDamageTime;
+	}
+	
+	public long getFireExtinguishTime() {
+		return fireExtinguishTime;
+	}
+	
+	public void setFireExtinguishTime(long fireExtinguishTime) {
+		this.fireExtinguishTime = fireExtinguishTime;
+	}
+	
+	public long getLastSwingTime() {
+		return lastSwingTime;
+	}
+	
+	public void setLastSwingTime(long lastSwingTime) {
+		this.lastSwingTime = lastSwingTime;
+	}
+	
+	public boolean isBlockingSword() {
+		return blockingSword;
+	}
+	
+	public void setBlockingSword(boolean blockingSword) {
+		this.blockingSword = blockingSword;
+	}
+	
+	public @Nullable Entity getSpectating() {
+		return spectating;
+	}
+	
+	public void setSpectating(@Nullable Entity spectating) {
+		this.spectating = spectating;
+	}
+	
+	public @Nullable Player.Hand getItemUseHand() {
+		return itemUseHand;
+	}
+	
+	public void setItemUseHand(@Nullable Player.Hand itemUseHand) {
+		this.itemUseHand = itemUseHand;
+	}
+	
+	public @Nullable Block getLastClimbedBlock() {
+		return lastClimbedBlock;
+	}
+	
+	public void setLastClimbedBlock(@Nullable Block lastClimbedBlock) {
+		this.lastClimbedBlock = lastClimbedBlock;
+	}
+	
+	public @Nullable LivingEntity getLastDamagedBy() {
+		return lastDamagedBy;
+	}
+	
+	public void setLastDamagedBy(@Nullable LivingEntity lastDamagedBy) {
+		this.lastDamagedBy = lastDamagedBy;
+	}
+	
+	public @Nullable ItemStack getBlockReplacementItem() {
+		return blockReplacementItem;
+	}
+	
+	public void setBlockReplacementItem(@Nullable ItemStack blockReplacementItem) {
+		this.blockReplacementItem = blockReplacementItem;
+	}
+	
+	/**
+	 * @return the last computed defense profile, use {@link DefenseProfile#of(LivingEntity)} to get an up to date one
+	 */
+	public @Nullable DefenseProfile getDefenseProfile() {
+		return defenseProfile;
+	}
+	
+	public void setDefenseProfile(@Nullable DefenseProfile defenseProfile) {
+		this.defenseProfile = defenseProfile;
+	}
+	
+	/**
+	 * @param endTick the tick at which the invulnerability ends
+	 * @param lastDamage the damage of the hit which started or last raised the invulnerability
+	 */
+	public record Invulnerability(long endTick, float lastDamage) {}
+	
+	/**
+	 * A hit recorded by {@link #tryHit(long, float, int, int)}.
+	 *
+	 * @param previous the invulnerability before the hit
+	 * @param current the invulnerability after the hit
+	 * @param full whether the hit started a new invulnerability,
+	 *             otherwise only the damage above the last damage of {@code previous} is dealt
+	 */
+	public record Hit(Invulnerability previous, Invulnerability current, boolean full) {}
+}
@@ -4,6 +4,7 @@ import io.github.bloepiloepi.pvp.damage.combat.CombatManager;
 import io.github.bloepiloepi.pvp.food.HungerManager;
 import io.github.bloepiloepi.pvp.listeners.AttackManager;
 import io.github.bloepiloepi.pvp.potion.PotionListener;
+import io.github.bloepiloepi.pvp.utils.CombatClock;
 import net.minestom.server.MinecraftServer;
 import net.minestom.server.entity.Entity;
 import net.minestom.server.entity.LivingEntity;
@@ -11,7 +12,8 @@ import net.minestom.server.entity.Player;
 import net.minestom.server.event.EventFilter;
 import net.minestom.server.event.EventNode;
 import net.minestom.server.event.entity.EntityFireEvent;
-import net.minestom.server.event.entity.EntityTickEvent;
+import net.minestom.server.event.entity.EntityPotionAddEvent;
+import net.minestom.server.event.entity.EntityPotionRemoveEvent;
 import net.minestom.server.event.instance.AddEntityToInstanceEvent;
 import net.minestom.server.event.instance.RemoveEntityFromInstanceEvent;
 import net.minestom.server.event.player.*;
@@ -21,28 +23,55 @@ import net.minestom.server.item.ItemStack;
 import net.minestom.server.item.Material;
 import net.minestom.server.network.packet.server.play.SetCooldownPacket;
 import net.minestom.server.utils.time.TimeUnit;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 
+/**
+ * Registers the listeners which create, update and destroy the {@link PvpState} of entities.
+ * <p>
+ * The static maps in this class are views of those states, kept for backwards compatibility.
+ * Use {@link PvpState#get(Entity)} instead.
+ */
 public class Tracker {
-	public static final Map<UUID, Integer> lastAttackedTicks = new HashMap<>();
-	public static final Map<UUID, Integer> invulnerableTime = new HashMap<>();
-	public static final Map<UUID, Float> lastDamageTaken = new HashMap<>();
-	public static final Map<UUID, HungerManager> hungerManager = new HashMap<>();
-	public static final Map<UUID, Map<Material, Long>> cooldownEnd = new HashMap<>();
-	public static final Map<UUID, Entity> spectating = new HashMap<>();
-	public static final Map<UUID, Long> itemUseStartTime = new HashMap<>();
-	public static final Map<UUID, Player.Hand> itemUseHand = new HashMap<>();
-	public static final Map<UUID, Block> lastClimbedBlock = new HashMap<>();
-	public static final Map<UUID, CombatManager> combatManager = new HashMap<>();
-	public static final Map<UUID, LivingEntity> lastDamagedBy = new HashMap<>();
-	public static final Map<UUID, Long> lastDamageTime = new HashMap<>();
-	public static final Map<UUID, Long> fireExtinguishTime = new HashMap<>();
-	public static final Map<UUID, ItemStack> blockReplacementItem = new HashMap<>();
-	public static final Map<UUID, Boolean> blockingSword = new HashMap<>();
-	public static final Map<UUID, Long> lastSwingTime = new HashMap<>();
-	public static final Map<UUID, Double> fallDistance = new HashMap<>();
+	@Deprecated
+	public static final Map<UUID, Integer> lastAttackedTicks = new StateView<>(PvpState::getLastAttackedTicks, PvpState::setLastAttackedTicks, 0);
+	@Deprecated
+	public static final Map<UUID, Integer> invulnerableTime = new StateView<>(PvpState::getInvulnerableTime, PvpState::setInvulnerableTime, 0);
+	@Deprecated
+	public static final Map<UUID, Float> lastDamageTaken = new StateView<>(PvpState::getLastDamageTaken, PvpState::setLastDamageTaken, 0F);
+	@Deprecated
+	public static final Map<UUID, HungerManager> hungerManager = new StateView<>(PvpState::getHungerManager, null, null);
+	@Deprecated
+	public static final Map<UUID, Map<Material, Long>> cooldownEnd = new StateView<>(PvpState::getCooldownEnd, null, null);
+	@Deprecated
+	public static final Map<UUID, Entity> spectating = new StateView<>(PvpState::getSpectating, PvpState::setSpectating, null);
+	@Deprecated
+	public static final Map<UUID, Long> itemUseStartTime = new StateView<>(PvpState::getItemUseStartTime, PvpState::setItemUseStartTime, 0L);
+	@Deprecated
+	public static final Map<UUID, Player.Hand> itemUseHand = new StateView<>(PvpState::getItemUseHand, PvpState::setItemUseHand, null);
+	@Deprecated
+	public static final Map<UUID, Block> lastClimbedBlock = new StateView<>(PvpState::getLastClimbedBlock, PvpState::setLastClimbedBlock, null);
+	@Deprecated
+	public static final Map<UUID, CombatManager> combatManager = new StateView<>(PvpState::getCombatManager, null, null);
+	@Deprecated
+	public static final Map<UUID, LivingEntity> lastDamagedBy = new StateView<>(PvpState::getLastDamagedBy, PvpState::setLastDamagedBy, null);
+	@Deprecated
+	public static final Map<UUID, Long> lastDamageTime = new StateView<>(PvpState::getLastDamageTime, PvpState::setLastDamageTime, 0L);
+	@Deprecated
+	public static final Map<UUID, Long> fireExtinguishTime = new StateView<>(PvpState::getFireExtinguishTime, PvpState::setFireExtinguishTime, 0L);
+	@Deprecated
+	public static final Map<UUID, ItemStack> blockReplacementItem = new StateView<>(PvpState::getBlockReplacementItem, PvpState::setBlockReplacementItem, null);
+	@Deprecated
+	public static final Map<UUID, Boolean> blockingSword = new StateView<>(PvpState::isBlockingSword, PvpState::setBlockingSword, false);
+	@Deprecated
+	public static final Map<UUID, Long> lastSwingTime = new StateView<>(PvpState::getLastSwingTime, PvpState::setLastSwingTime, 0L);
+	@Deprecated
+	public static final Map<UUID, Double> fallDistance = new StateView<>(PvpState::getFallDistance, PvpState::setFallDistance, 0.0);
 	
 	public static <K> void increaseInt(Map<K, Integer> map, K key, int amount) {
 		map.put(key, map.getOrDefault(key, 0) + amount);
@@ -52,36 +81,27 @@ public class Tracker {
 		map.put(key, map.getOrDefault(key, 0) - amount);
 	}
 	
+	/**
+	 * @deprecated use {@link CooldownManager#hasCooldown(Player, Material)}
+	 */
+	@Deprecated
 	public static boolean hasCooldown(Player player, Material material) {
-		Map<Material, Long> cooldownMap = cooldownEnd.get(player.getUuid());
-		
-		return cooldownMap.containsKey(material) && cooldownMap.get(material) > System.currentTimeMillis();
+		return CooldownManager.hasCooldown(player, material);
 	}
 	
+	/**
+	 * @deprecated use {@link CooldownManager#setCooldown(Player, Material, int)}
+	 */
+	@Deprecated
 	public static void setCooldown(Player player, Material material, int durationTicks) {
-		cooldownEnd.get(player.getUuid()).put(material, System.currentTimeMillis() + (long) durationTicks * MinecraftServer.TICK_MS);
-		onCooldown(player, material, durationTicks);
+		CooldownManager.setCooldown(player, material, durationTicks);
 	}
 	
+	/**
+	 * @deprecated cooldowns are expired by the {@link CooldownManager}, this method does nothing
+	 */
+	@Deprecated
 	public static void updateCooldown() {
-		if (cooldownEnd.isEmpty()) return;
-		long time = System.currentTimeMillis();
-		
-		cooldownEnd.forEach((uuid, cooldownMap) -> {
-			if (cooldownMap.isEmpty()) return;
-			
-			Iterator<Map.Entry<Material, Long>> iterator = cooldownMap.entrySet().iterator();
-			Player player = MinecraftServer.getConnectionManager().getPlayer(uuid);
-			assert player != null;
-			
-			while (iterator.hasNext()) {
-				Map.Entry<Material, Long> entry = iterator.next();
-				if (entry.getValue() <= time) {
-					iterator.remove();
-					onCooldown(player, entry.getKey(), 0);
-				}
-			}
-		});
 	}
 	
 	@SuppressWarnings("UnstableApiUsage")
@@ -93,125 +113,101 @@ public class Tracker {
 		EventNode<EntityEvent> node = EventNode.type("tracker-events", EventFilter.ENTITY);
 		eventNode.addChild(node);
 		
-		node.addListener(PlayerLoginEvent.class, event -> {
-			UUID uuid = event.getPlayer().getUuid();
-			
-			Tracker.lastAttackedTicks.put(uuid, 0);
-			Tracker.invulnerableTime.put(uuid, 0);
-			Tracker.lastDamageTaken.put(uuid, 0F);
-			Tracker.hungerManager.put(uuid, new HungerManager(event.getPlayer()));
-			Tracker.cooldownEnd.put(uuid, new HashMap<>());
-			Tracker.spectating.put(uuid, event.getPlayer());
-			Tracker.combatManager.put(uuid, new CombatManager(event.getPlayer()));
-			Tracker.blockingSword.put(uuid, false);
-			Tracker.lastSwingTime.put(uuid, 0L);
-			Tracker.fallDistance.put(uuid, 0.0);
-		});
+		node.addListener(PlayerLoginEvent.class, event -> PvpState.create(event.getPlayer()));
 		
-		node.addListener(PlayerDisconnectEvent.class, event -> {
-			UUID uuid = event.getPlayer().getUuid();
-			
-			Tracker.lastAttackedTicks.remove(uuid);
-			Tracker.invulnerableTime.remove(uuid);
-			Tracker.lastDamageTaken.remove(uuid);
-			Tracker.hungerManager.remove(uuid);
-			Tracker.cooldownEnd.remove(uuid);
-			Tracker.spectating.remove(uuid);
-			Tracker.itemUseStartTime.remove(uuid);
-			Tracker.itemUseHand.remove(uuid);
-			Tracker.lastClimbedBlock.remove(uuid);
-			Tracker.combatManager.remove(uuid);
-			Tracker.lastDamagedBy.remove(uuid);
-			Tracker.lastDamageTime.remove(uuid);
-			Tracker.fireExtinguishTime.remove(uuid);
-			Tracker.blockReplacementItem.remove(uuid);
-			Tracker.blockingSword.remove(uuid);
-			Tracker.lastSwingTime.remove(uuid);
-			Tracker.fallDistance.remove(uuid);
+		node.addListener(PlayerDisconnectEvent.class, event -> PvpState.destroy(event.getPlayer()));
+		
+		node.addListener(AddEntityToInstanceEvent.class, event -> {
+			if (event.getEntity() instanceof LivingEntity livingEntity && !(livingEntity instanceof Player))
+				PvpState.getOrCreate(livingEntity);
 		});
-
+		
 		/*
-		 * A special case for fall damage as we cache the fall distance for all entities,
-		 * and we need to remove it when the entity dies.
- 		 */
+		 * Players keep their state until they disconnect,
+		 * other entities lose it when they are removed from their instance.
+		 */
 		node.addListener(RemoveEntityFromInstanceEvent.class, event -> {
-			if (!(event.getEntity() instanceof LivingEntity livingEntity)) return;
-			if (livingEntity instanceof Player) return;
-			Tracker.fallDistance.remove(livingEntity.getUuid());
+			Entity entity = event.getEntity();
+			if (entity instanceof Player) {
+				PvpState state = PvpState.get(entity);
+				if (state != null) state.setFireExtinguishTime(0);
+			} else {
+				PvpState.destroy(entity);
+			}
 		});
 		
 		node.addListener(PlayerSpawnEvent.class, event -> {
-			CombatManager combatManager = Tracker.combatManager.get(event.getPlayer().getUuid());
-			if (combatManager != null) combatManager.reset();
+			PvpState state = PvpState.getOrCreate(event.getPlayer());
+			state.getCombatManager().reset();
+			state.setFallDistance(0.0);
 		});
 		
 		node.addListener(PlayerTickEvent.class, event -> {
 			Player player = event.getPlayer();
-			UUID uuid = player.getUuid();
-			Tracker.increaseInt(Tracker.lastAttackedTicks, uuid, 1);
+			PvpState state = PvpState.getOrCreate(player);
 			
 			if (player.isOnGround()) {
-				Tracker.lastClimbedBlock.remove(uuid);
+				state.setLastClimbedBlock(null);
 			}
 			
 			if (player.isDead()) {
-				Tracker.combatManager.get(uuid).recheckStatus();
+				state.getCombatManager().recheckStatus();
 			}
 			if (player.getAliveTicks() % 20 == 0 && player.isOnline()) {
-				Tracker.combatManager.get(uuid).recheckStatus();
+				state.getCombatManager().recheckStatus();
 			}
 			
-			if (Tracker.lastDamagedBy.containsKey(uuid)) {
-				LivingEntity lastDamagedBy = Tracker.lastDamagedBy.get(uuid);
+			LivingEntity lastDamagedBy = state.getLastDamagedBy();
+			if (lastDamagedBy != null) {
 				if (lastDamagedBy.isDead()) {
-					Tracker.lastDamagedBy.remove(uuid);
-				} else if (System.currentTimeMillis() - Tracker.lastDamageTime.get(uuid) > 5000) {
+					state.setLastDamagedBy(null);
+				} else if (CombatClock.get().getMillis() - state.getLastDamageTime() > 5000) {
 					// After 5 seconds of no attack the last damaged by does not count anymore
-					Tracker.lastDamagedBy.remove(uuid);
+					state.setLastDamagedBy(null);
 				}
 			}
 			
 			AttackManager.spectateTick(player);
 		});
 		
-		node.addListener(EntityTickEvent.class, event -> {
-			if (Tracker.invulnerableTime.getOrDefault(event.getEntity().getUuid(), 0) > 0) {
-				Tracker.decreaseInt(Tracker.invulnerableTime, event.getEntity().getUuid(), 1);
-			}
-		});
-		
 		node.addListener(PlayerUseItemEvent.class, event -> {
-			if (Tracker.hasCooldown(event.getPlayer(), event.getItemStack().material())) {
+			if (CooldownManager.hasCooldown(event.getPlayer(), event.getItemStack().material())) {
 				event.setCancelled(true);
 			}
 		});
 		
 		node.addListener(PlayerPreEatEvent.class, event -> {
-			if (Tracker.hasCooldown(event.getPlayer(), event.getItemStack().material())) {
+			if (CooldownManager.hasCooldown(event.getPlayer(), event.getItemStack().material())) {
 				event.setCancelled(true);
 			}
 		});
 		
 		node.addListener(PlayerItemAnimationEvent.class, event ->
-				itemUseStartTime.put(event.getPlayer().getUuid(), System.currentTimeMillis()));
+				PvpState.getOrCreate(event.getPlayer()).setItemUseStartTime(CombatClock.get().getMillis()));
 		
 		node.addListener(PlayerMoveEvent.class, event -> {
 			Player player = event.getPlayer();
 			if (EntityUtils.isClimbing(player)) {
-				lastClimbedBlock.put(player.getUuid(), Objects.requireNonNull(player.getInstance())
+				PvpState state = PvpState.getOrCreate(player);
+				state.setLastClimbedBlock(Objects.requireNonNull(player.getInstance())
 						.getBlock(player.getPosition()));
-				fallDistance.put(player.getUuid(), 0.0);
+				state.setFallDistance(0.0);
 			}
 		});
 		
-		node.addListener(PlayerSpawnEvent.class, event -> fallDistance.put(event.getPlayer().getUuid(), 0.0));
+		node.addListener(EntityPotionAddEvent.class, event -> {
+			PvpState state = PvpState.get(event.getEntity());
+			if (state != null) state.getEffectIndex().add(event.getPotion());
+		});
 		
-		node.addListener(EntityFireEvent.class, event ->
-				Tracker.fireExtinguishTime.put(event.getEntity().getUuid(),
-						System.currentTimeMillis() + event.getFireTime(TimeUnit.MILLISECOND)));
+		node.addListener(EntityPotionRemoveEvent.class, event -> {
+			PvpState state = PvpState.get(event.getEntity());
+			if (state != null) state.getEffectIndex().remove(event.getPotion().effect());
+		});
 		
-		node.addListener(RemoveEntityFromInstanceEvent.class, event ->
-				Tracker.fireExtinguishTime.remove(event.getEntity().getUuid()));
+		node.addListener(EntityFireEvent.class, event ->
+				PvpState.getOrCreate(event.getEntity()).setFireExtinguishTime(
+						CombatClock.get().getMillis() + event.getFireTime(TimeUnit.MILLISECOND)));
 		
 		node.addListener(AddEntityToInstanceEvent.class, event -> {
 			if (event.getEntity() instanceof LivingEntity)
@@ -222,7 +218,71 @@ public class Tracker {
 				PotionListener.durationLeftMap.remove(event.getEntity().getUuid()));
 		
 		MinecraftServer.getSchedulerManager()
-				.buildTask(Tracker::updateCooldown)
+				.buildTask(() -> {
+					CombatClock.SERVER.tick();
+					CooldownManager.tick();
+				})
 				.repeat(1, TimeUnit.SERVER_TICK).schedule();
 	}
+	
+	/**
+	 * A map view of a single field of all {@link PvpState}s, keyed by entity uuid.
+	 * Values can only be put for entities which already have a state.
+	 */
+	private static final class StateView<V> extends AbstractMap<UUID, V> {
+		private final Function<PvpState, V> getter;
+		private final BiConsumer<PvpState, V> setter;
+		private final V defaultValue;
+		
+		private StateView(Function<PvpState, V> getter, @Nullable BiConsumer<PvpState, V> setter, V defaultValue) {
+			this.getter = getter;
+			this.setter = setter;
+			this.defaultValue = defaultValue;
+		}
+		
+		@Override
+		public V get(Object key) {
+			if (!(key instanceof UUID uuid)) return null;
+			PvpState state = PvpState.get(uuid);
+			return state == null ? null : getter.apply(state);
+		}
+		
+		@Override
+		public boolean containsKey(Object key) {
+			return get(key) != null;
+		}
+		
+		@Override
+		public V put(UUID key, V value) {
+			PvpState state = PvpState.get(key);
+			if (state == null || setter == null) return null;
+			
+			V previous = getter.apply(state);
+			setter.accept(state, value == null ? defaultValue : value);
+			return previous;
+		}
+		
+		@Override
+		public V remove(Object key) {
+			if (!(key instanceof UUID uuid)) return null;
+			PvpState state = PvpState.get(uuid);
+			if (state == null || setter == null) return null;
+			
+			V previous = getter.apply(state);
+			setter.accept(state, defaultValue);
+			return previous;
+		}
+		
+		@NotNull
+		@Override
+		public Set<Entry<UUID, V>> entrySet() {
+			Set<Entry<UUID, V>> entries = new HashSet<>();
+			for (PvpState state : PvpState.all()) {
+				V value = getter.apply(state);
+				if (value != null) entries.add(new SimpleImmutableEntry<>(state.getEntity().getUuid(), value));
+			}
+			
+			return entries;
+		}
+	}
 }
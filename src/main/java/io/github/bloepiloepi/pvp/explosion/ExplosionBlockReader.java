@@ -0,0 +1,117 @@
+package io.github.bloepiloepi.pvp.explosion;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.minestom.server.instance.Chunk;
+import net.minestom.server.instance.Instance;
+import net.minestom.server.instance.block.Block;
+import net.minestom.server.instance.palette.Palette;
+
+/**
+ * Reads the blocks used for explosion calculations, either directly from the instance or from a snapshot.
+ * <p>
+ * The reader remembers the last chunk or section it read from, so it should only be used by one thread.
+ * Use {@link #fork()} to get a reader for another thread.
+ * Blocks in unloaded chunks are read as air.
+ */
+final class ExplosionBlockReader {
+	private final Instance instance;
+	private final Long2ObjectMap<Palette> snapshot;
+	
+	private Chunk chunk;
+	private int chunkX = Integer.MIN_VALUE, chunkZ = Integer.MIN_VALUE;
+	
+	private Palette section;
+	private int sectionX = Integer.MIN_VALUE, sectionY = Integer.MIN_VALUE, sectionZ = Integer.MIN_VALUE;
+	
+	private ExplosionBlockReader(Instance instance, Long2ObjectMap<Palette> snapshot) {
+		this.instance = instance;
+		this.snapshot = snapshot;
+	}
+	
+	/**
+	 * Creates a reader which reads the current blocks of the instance.
+	 */
+	static ExplosionBlockReader live(Instance instance) {
+		return new ExplosionBlockReader(instance, null);
+	}
+	
+	/**
+	 * Creates a reader which reads copies of the block palettes of the sections within a radius of a position,
+	 * taken when this method is called. Only sections intersecting the sphere are copied.
+	 * The copies are never modified, so the reader can be used while the instance is ticking.
+	 * Blocks outside the copied sections are read as air.
+	 */
+	static ExplosionBlockReader snapshot(Instance instance, double x, double y, double z, double radius) {
+		Long2ObjectMap<Palette> sections = new Long2ObjectOpenHashMap<>();
+		int minChunkX = (int) Math.floor(x - radius) >> 4;
+		int maxChunkX = (int) Math.floor(x + radius) >> 4;
+		int minChunkZ = (int) Math.floor(z - radius) >> 4;
+		int maxChunkZ = (int) Math.floor(z + radius) >> 4;
+		for (int chunkX = minChunkX; chunkX <= maxChunkX; chunkX++) {
+			for (int chunkZ = minChunkZ; chunkZ <= maxChunkZ; chunkZ++) {
+				Chunk chunk = instance.getChunk(chunkX, chunkZ);
+				if (chunk == null) continue;
+				
+				int minSection = Math.max(chunk.getMinSection(), (int) Math.floor(y - radius) >> 4);
+				int maxSection = Math.min(chunk.getMaxSection() - 1, (int) Math.floor(y + radius) >> 4);
+				synchronized (chunk) {
+					for (int sectionY = minSection; sectionY <= maxSection; sectionY++) {
+						if (!intersects(chunkX, sectionY, chunkZ, x, y, z, radius)) continue;
+						sections.put(ExplosionRays.pack(chunkX, sectionY, chunkZ),
+								chunk.getSection(sectionY).blockPalette().clone());
+					}
+				}
+			}
+		}
+		
+		return new ExplosionBlockReader(instance, sections);
+	}
+	
+	/**
+	 * @return a reader of the same blocks, for use by another thread
+	 */
+	ExplosionBlockReader fork() {
+		return new ExplosionBlockReader(instance, snapshot);
+	}
+	
+	Block getBlock(int x, int y, int z) {
+		if (snapshot != null) {
+			if (x >> 4 != sectionX || y >> 4 != sectionY || z >> 4 != sectionZ) {
+				sectionX = x >> 4;
+				sectionY = y >> 4;
+				sectionZ = z >> 4;
+				section = snapshot.get(ExplosionRays.pack(sectionX, sectionY, sectionZ));
+			}
+			
+			return section == null ? Block.AIR : Block.fromStateId((short) section.get(x & 15, y & 15, z & 15));
+		}
+		
+		if (x >> 4 != chunkX || z >> 4 != chunkZ) {
+			chunkX = x >> 4;
+			chunkZ = z >> 4;
+			chunk = instance.getChunk(chunkX, chunkZ);
+		}
+		
+		return chunk == null ? Block.AIR : chunk.getBlock(x, y, z);
+	}
+	
+	/**
+	 * @return whether the section is within the radius of the position
+	 */
+	private static boolean intersects(int sectionX, int sectionY, int sectionZ,
+	                                  double x, double y, double z, double radius) {
+		double dx = distance(x, sectionX << 4);
+		double dy = distance(y, sectionY << 4);
+		double dz = distance(z, sectionZ << 4);
+		return dx * dx + dy * dy + dz * dz <= radius * radius;
+	}
+	
+	/**
+	 * @return the distance from a coordinate to the 16 blocks starting at {@code min}, or 0 if it is inside them
+	 */
+	private static double distance(double coordinate, int min) {
+		if (coordinate < min) return min - coordinate;
+		return Math.max(0, coordinate - (min + 16));
+	}
+}
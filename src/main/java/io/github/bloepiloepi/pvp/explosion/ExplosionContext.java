@@ -0,0 +1,108 @@
+package io.github.bloepiloepi.pvp.explosion;
+
+import net.minestom.server.entity.Entity;
+import net.minestom.server.entity.LivingEntity;
+import net.minestom.server.instance.Instance;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jglrxavpok.hephaistos.nbt.NBT;
+import org.jglrxavpok.hephaistos.nbt.NBTCompound;
+
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * The options of a single explosion.
+ * <p>
+ * A context can be passed to {@link PvpExplosionSupplier#explode(Instance, float, float, float, float, ExplosionContext)},
+ * which hands it to the explosion directly. Explosions created through {@link Instance#explode(float, float, float, float, NBTCompound)}
+ * read their context from the nbt data instead, see {@link #fromNbt(Instance, NBTCompound)}.
+ *
+ * @param causingEntity the entity which caused the explosion, or null
+ * @param fire whether the explosion places fire
+ * @param anchor whether the explosion is a respawn anchor explosion, which changes the damage type
+ * @param breakBlocks whether the explosion breaks blocks
+ * @param knockbackMultiplier the multiplier for the knockback entities receive
+ */
+public record ExplosionContext(@Nullable LivingEntity causingEntity, boolean fire, boolean anchor,
+                               boolean breakBlocks, float knockbackMultiplier) {
+	public static final ExplosionContext DEFAULT = new ExplosionContext(null, false, false, true, 1);
+	
+	public static ExplosionContext of(@Nullable LivingEntity causingEntity) {
+		return new ExplosionContext(causingEntity, false, false, true, 1);
+	}
+	
+	public ExplosionContext withCausingEntity(@Nullable LivingEntity causingEntity) {
+		return new ExplosionContext(causingEntity, fire, anchor, breakBlocks, knockbackMultiplier);
+	}
+	
+	public ExplosionContext withFire(boolean fire) {
+		return new ExplosionContext(causingEntity, fire, anchor, breakBlocks, knockbackMultiplier);
+	}
+	
+	public ExplosionContext withAnchor(boolean anchor) {
+		return new ExplosionContext(causingEntity, fire, anchor, breakBlocks, knockbackMultiplier);
+	}
+	
+	public ExplosionContext withBreakBlocks(boolean breakBlocks) {
+		return new ExplosionContext(causingEntity, fire, anchor, breakBlocks, knockbackMultiplier);
+	}
+	
+	public ExplosionContext withKnockbackMultiplier(float knockbackMultiplier) {
+		return new ExplosionContext(causingEntity, fire, anchor, breakBlocks, knockbackMultiplier);
+	}
+	
+	/**
+	 * Reads a context from explosion nbt data.
+	 * The causing entity is stored as a uuid, which is looked up in the given instance.
+	 *
+	 * @param instance the instance the explosion is in
+	 * @param data the nbt data of the explosion
+	 * @return the context
+	 */
+	public static @NotNull ExplosionContext fromNbt(@NotNull Instance instance, @Nullable NBTCompound data) {
+		if (data == null) return DEFAULT;
+		
+		LivingEntity causingEntity = null;
+		if (data.contains("causingEntity")) {
+			UUID causingUuid = UUID.fromString(Objects.requireNonNull(data.getString("causingEntity")));
+			causingEntity = findLivingEntity(instance, causingUuid);
+		}
+		
+		boolean breakBlocks = true;
+		if (data.contains("breakBlocks"))
+			breakBlocks = Objects.requireNonNull(data.getByte("breakBlocks")) == (byte) 1;
+		
+		float knockbackMultiplier = 1;
+		if (data.contains("knockbackMultiplier"))
+			knockbackMultiplier = Objects.requireNonNull(data.getFloat("knockbackMultiplier"));
+		
+		return new ExplosionContext(
+				causingEntity,
+				data.contains("fire") && Boolean.TRUE.equals(data.getBoolean("fire")),
+				data.contains("anchor") && Boolean.TRUE.equals(data.getBoolean("anchor")),
+				breakBlocks,
+				knockbackMultiplier
+		);
+	}
+	
+	/**
+	 * Writes this context to explosion nbt data, used for explosion suppliers which don't support contexts.
+	 *
+	 * @return the nbt data
+	 */
+	public @NotNull NBTCompound toNbt() {
+		return NBT.Compound(NBT -> {
+			if (causingEntity != null) NBT.setString("causingEntity", causingEntity.getUuid().toString());
+			if (fire) NBT.setByte("fire", (byte) 1);
+			if (anchor) NBT.setByte("anchor", (byte) 1);
+			if (!breakBlocks) NBT.setByte("breakBlocks", (byte) 0);
+			if (knockbackMultiplier != 1) NBT.setFloat("knockbackMultiplier", knockbackMultiplier);
+		});
+	}
+	
+	private static @Nullable LivingEntity findLivingEntity(Instance instance, UUID uuid) {
+		Entity entity = instance.getEntityByUuid(uuid);
+		return entity instanceof LivingEntity living ? living : null;
+	}
+}
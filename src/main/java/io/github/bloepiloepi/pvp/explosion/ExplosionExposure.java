@@ -0,0 +1,246 @@
+package io.github.bloepiloepi.pvp.explosion;
+
+import net.minestom.server.collision.BoundingBox;
+import net.minestom.server.collision.Shape;
+import net.minestom.server.coordinate.Point;
+import net.minestom.server.entity.Entity;
+
+/**
+ * Computes how much of an entity is exposed to an explosion, like {@link PvpExplosionSupplier#getExposure(Point, Entity)}.
+ * <p>
+ * Rays are walked through the block grid from each sample point to the explosion center,
+ * and stop at the first block whose collision shape bounds they pass through. Like the line of sight check
+ * used before, the blocks the sample point and the center are in never block the ray, so entities standing
+ * on slabs or soul sand and explosions resting on them are not shielded by them.
+ * Whether a block has no shape, a full shape or a partial one is cached for the area around the explosion,
+ * so every full or empty block is only read once per explosion. Casting a ray does not allocate.
+ * <p>
+ * An instance is meant to be used for a single explosion on a single thread.
+ */
+final class ExplosionExposure {
+	private static final byte UNKNOWN = 0, OPEN = 1, FULL = 2, PARTIAL = 3;
+	
+	private final ExplosionBlockReader reader;
+	private final double centerX, centerY, centerZ;
+	private final int minX, minY, minZ;
+	private final int sizeX, sizeY, sizeZ;
+	private final int centerBlockX, centerBlockY, centerBlockZ;
+	private final double[] interval = new double[2];
+	
+	private byte[] voxels;
+	private double[] xSamples = new double[8], ySamples = new double[8], zSamples = new double[8];
+	
+	/**
+	 * @param reader the reader for the blocks of the instance the explosion is in
+	 * @param centerX the x coordinate of the explosion center
+	 * @param centerY the y coordinate of the explosion center
+	 * @param centerZ the z coordinate of the explosion center
+	 * @param radius the radius around the center in which blocks are cached
+	 */
+	ExplosionExposure(ExplosionBlockReader reader, double centerX, double centerY, double centerZ, double radius) {
+		this.reader = reader;
+		this.centerX = centerX;
+		this.centerY = centerY;
+		this.centerZ = centerZ;
+		this.minX = (int) Math.floor(centerX - radius);
+		this.minY = (int) Math.floor(centerY - radius);
+		this.minZ = (int) Math.floor(centerZ - radius);
+		this.sizeX = (int) Math.floor(centerX + radius) - minX + 1;
+		this.sizeY = (int) Math.floor(centerY + radius) - minY + 1;
+		this.sizeZ = (int) Math.floor(centerZ + radius) - minZ + 1;
+		this.centerBlockX = (int) Math.floor(centerX);
+		this.centerBlockY = (int) Math.floor(centerY);
+		this.centerBlockZ = (int) Math.floor(centerZ);
+	}
+	
+	/**
+	 * Gets the exposure of an entity.
+	 *
+	 * @param position the position of the entity
+	 * @param box the bounding box of the entity
+	 * @param maxSamples the maximum amount of samples per axis, or 0 to sample like vanilla
+	 * @return the fraction of sample points with an unobstructed line to the center
+	 */
+	double getExposure(Point position, BoundingBox box, int maxSamples) {
+		double xStep = 1 / (box.width() * 2 + 1);
+		double yStep = 1 / (box.height() * 2 + 1);
+		double zStep = 1 / (box.depth() * 2 + 1);
+		if (xStep < 0 || yStep < 0 || zStep < 0) return 0;
+		double g = (1 - Math.floor(1 / xStep) * xStep) / 2;
+		double h = (1 - Math.floor(1 / zStep) * zStep) / 2;
+		
+		int xCount = fillSamples(0, position.x() + box.minX() + g, box.width(), xStep, maxSamples);
+		int yCount = fillSamples(1, position.y() + box.minY(), box.height(), yStep, maxSamples);
+		int zCount = fillSamples(2, position.z() + box.minZ() + h, box.depth(), zStep, maxSamples);
+		
+		int exposedCount = 0;
+		for (int x = 0; x < xCount; x++) {
+			for (int y = 0; y < yCount; y++) {
+				for (int z = 0; z < zCount; z++) {
+					if (!isBlocked(xSamples[x], ySamples[y], zSamples[z])) exposedCount++;
+				}
+			}
+		}
+		
+		return exposedCount / (double) (xCount * yCount * zCount);
+	}
+	
+	/**
+	 * Fills the sample coordinates of an axis, using the same steps as vanilla
+	 * unless there would be more than {@code maxSamples} of them.
+	 *
+	 * @return the amount of samples
+	 */
+	private int fillSamples(int axis, double start, double size, double step, int maxSamples) {
+		int count = 0;
+		for (double d = 0; d <= 1; d += step) {
+			count++;
+		}
+		
+		boolean coarse = maxSamples > 0 && count > maxSamples;
+		if (coarse) count = maxSamples;
+		
+		double[] samples = switch (axis) {
+			case 0 -> xSamples = ensureCapacity(xSamples, count);
+			case 1 -> ySamples = ensureCapacity(ySamples, count);
+			default -> zSamples = ensureCapacity(zSamples, count);
+		};
+		
+		if (coarse) {
+			for (int i = 0; i < count; i++) {
+				samples[i] = start + (i + 0.5) / count * size;
+			}
+		} else {
+			int i = 0;
+			for (double d = 0; d <= 1; d += step) {
+				samples[i++] = start + d * size;
+			}
+		}
+		
+		return count;
+	}
+	
+	private static double[] ensureCapacity(double[] array, int capacity) {
+		return array.length >= capacity ? array : new double[capacity];
+	}
+	
+	/**
+	 * Walks the blocks between a point and the explosion center.
+	 *
+	 * @return whether a block shape is in the way
+	 */
+	private boolean isBlocked(double startX, double startY, double startZ) {
+		double dx = centerX - startX;
+		double dy = centerY - startY;
+		double dz = centerZ - startZ;
+		
+		int x = (int) Math.floor(startX);
+		int y = (int) Math.floor(startY);
+		int z = (int) Math.floor(startZ);
+		int stepX = dx > 0 ? 1 : -1;
+		int stepY = dy > 0 ? 1 : -1;
+		int stepZ = dz > 0 ? 1 : -1;
+		
+		// The distances along the ray (from 0 to 1) to cross one block on each axis, and to the next block border
+		double deltaX = dx == 0 ? Double.POSITIVE_INFINITY : Math.abs(1 / dx);
+		double deltaY = dy == 0 ? Double.POSITIVE_INFINITY : Math.abs(1 / dy);
+		double deltaZ = dz == 0 ? Double.POSITIVE_INFINITY : Math.abs(1 / dz);
+		double nextX = dx == 0 ? Double.POSITIVE_INFINITY : deltaX * (dx > 0 ? x + 1 - startX : startX - x);
+		double nextY = dy == 0 ? Double.POSITIVE_INFINITY : deltaY * (dy > 0 ? y + 1 - startY : startY - y);
+		double nextZ = dz == 0 ? Double.POSITIVE_INFINITY : deltaZ * (dz > 0 ? z + 1 - startZ : startZ - z);
+		
+		// The block the sample point is in never blocks
+		while (true) {
+			if (nextX < nextY && nextX < nextZ) {
+				if (nextX > 1) return false;
+				x += stepX;
+				nextX += deltaX;
+			} else if (nextY < nextZ) {
+				if (nextY > 1) return false;
+				y += stepY;
+				nextY += deltaY;
+			} else {
+				if (nextZ > 1) return false;
+				z += stepZ;
+				nextZ += deltaZ;
+			}
+			
+			if (x == centerBlockX && y == centerBlockY && z == centerBlockZ) return false;
+			if (isBlocking(x, y, z, startX, startY, startZ, dx, dy, dz)) return true;
+		}
+	}
+	
+	/**
+	 * Checks whether the ray passes through the collision shape bounds of a block it enters.
+	 */
+	private boolean isBlocking(int x, int y, int z, double startX, double startY, double startZ,
+	                           double dx, double dy, double dz) {
+		byte voxel = getVoxel(x, y, z);
+		if (voxel != PARTIAL) return voxel == FULL;
+		
+		Shape shape = reader.getBlock(x, y, z).registry().collisionShape();
+		Point shapeStart = shape.relativeStart();
+		Point shapeEnd = shape.relativeEnd();
+		
+		// Clip the ray against the bounds on every axis, it passes through them if some part is left
+		interval[0] = 0;
+		interval[1] = 1;
+		return clip(startX, dx, x + shapeStart.x(), x + shapeEnd.x())
+				&& clip(startY, dy, y + shapeStart.y(), y + shapeEnd.y())
+				&& clip(startZ, dz, z + shapeStart.z(), z + shapeEnd.z());
+	}
+	
+	/**
+	 * Narrows {@link #interval} to the part of the ray which is between {@code min} and {@code max} on an axis.
+	 *
+	 * @return whether some part of the ray is left
+	 */
+	private boolean clip(double start, double delta, double min, double max) {
+		if (delta == 0) return start > min && start < max;
+		
+		double enter = (min - start) / delta;
+		double exit = (max - start) / delta;
+		if (enter > exit) {
+			double temp = enter;
+			enter = exit;
+			exit = temp;
+		}
+		
+		interval[0] = Math.max(interval[0], enter);
+		interval[1] = Math.min(interval[1], exit);
+		return interval[0] < interval[1];
+	}
+	
+	private byte getVoxel(int x, int y, int z) {
+		int localX = x - minX;
+		int localY = y - minY;
+		int localZ = z - minZ;
+		if (localX < 0 || localY < 0 || localZ < 0 || localX >= sizeX || localY >= sizeY || localZ >= sizeZ) {
+			return readVoxel(x, y, z);
+		}
+		
+		// Only allocated once an entity is in range, the area of a strong explosion is large
+		if (voxels == null) voxels = new byte[sizeX * sizeY * sizeZ];
+		
+		int index = (localX * sizeY + localY) * sizeZ + localZ;
+		byte voxel = voxels[index];
+		if (voxel == UNKNOWN) {
+			voxel = readVoxel(x, y, z);
+			voxels[index] = voxel;
+		}
+		
+		return voxel;
+	}
+	
+	private byte readVoxel(int x, int y, int z) {
+		Shape shape = reader.getBlock(x, y, z).registry().collisionShape();
+		Point start = shape.relativeStart();
+		Point end = shape.relativeEnd();
+		if (start.x() >= end.x() || start.y() >= end.y() || start.z() >= end.z()) return OPEN;
+		if (start.x() <= 0 && start.y() <= 0 && start.z() <= 0 && end.x() >= 1 && end.y() >= 1 && end.z() >= 1) {
+			return FULL;
+		}
+		
+		return PARTIAL;
+	}
+}
@@ -0,0 +1,131 @@
+package io.github.bloepiloepi.pvp.explosion;
+
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import it.unimi.dsi.fastutil.shorts.ShortArrayList;
+import net.minestom.server.coordinate.Point;
+import net.minestom.server.instance.Instance;
+import net.minestom.server.instance.block.Block;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Records the blocks changed by explosions in an instance, so they can be restored later.
+ * This includes blocks destroyed by explosions, fire placed by explosions and primed tnt.
+ * <p>
+ * Journals are opt-in per instance, see {@link #enable(Instance)}.
+ * Only the first block state of every position is kept, so rolling back restores the instance
+ * to how it was when the journal was enabled or last rolled back. Block entity data is not recorded.
+ * <p>
+ * Blocks in chunks which are not loaded while rolling back are not restored, and stay in the journal
+ * so the next rollback restores them once their chunk is loaded again.
+ */
+public class ExplosionJournal {
+	private static final Map<UUID, ExplosionJournal> JOURNALS = new ConcurrentHashMap<>();
+	
+	private final Instance instance;
+	private final LongSet recorded = new LongOpenHashSet();
+	private final LongArrayList positions = new LongArrayList();
+	private final ShortArrayList states = new ShortArrayList();
+	
+	private ExplosionJournal(Instance instance) {
+		this.instance = instance;
+	}
+	
+	/**
+	 * Starts recording explosion block changes in an instance.
+	 *
+	 * @param instance the instance
+	 * @return the journal of the instance, which is the existing one if it was already enabled
+	 */
+	public static @NotNull ExplosionJournal enable(@NotNull Instance instance) {
+		return JOURNALS.computeIfAbsent(instance.getUniqueId(), uuid -> new ExplosionJournal(instance));
+	}
+	
+	/**
+	 * Stops recording explosion block changes in an instance and discards its journal.
+	 * This should be called when the instance is unregistered.
+	 *
+	 * @param instance the instance
+	 */
+	public static void disable(@NotNull Instance instance) {
+		JOURNALS.remove(instance.getUniqueId());
+	}
+	
+	public static @Nullable ExplosionJournal get(@NotNull Instance instance) {
+		return JOURNALS.get(instance.getUniqueId());
+	}
+	
+	/**
+	 * Restores all blocks recorded in the journal of an instance in loaded chunks, if it has one.
+	 *
+	 * @param instance the instance
+	 */
+	public static void rollback(@NotNull Instance instance) {
+		ExplosionJournal journal = get(instance);
+		if (journal != null) journal.rollback();
+	}
+	
+	static void record(Instance instance, int x, int y, int z, Block previous) {
+		ExplosionJournal journal = JOURNALS.get(instance.getUniqueId());
+		if (journal != null) journal.record(x, y, z, previous);
+	}
+	
+	static void record(Instance instance, Point position, Block previous) {
+		record(instance, position.blockX(), position.blockY(), position.blockZ(), previous);
+	}
+	
+	/**
+	 * Records the block at a position before it is changed, unless the position was already recorded.
+	 */
+	public synchronized void record(int x, int y, int z, @NotNull Block previous) {
+		long position = ExplosionRays.pack(x, y, z);
+		if (!recorded.add(position)) return;
+		
+		positions.add(position);
+		states.add(previous.stateId());
+	}
+	
+	/**
+	 * @return the amount of recorded positions
+	 */
+	public synchronized int size() {
+		return positions.size();
+	}
+	
+	/**
+	 * Restores all recorded blocks in loaded chunks, grouped by chunk section, and removes them from the journal.
+	 * Recorded blocks in chunks which are not loaded are kept.
+	 */
+	public void rollback() {
+		SectionBlockChanges changes = new SectionBlockChanges();
+		synchronized (this) {
+			for (int i = 0; i < positions.size(); i++) {
+				long position = positions.getLong(i);
+				Block block = Block.fromStateId(states.getShort(i));
+				if (block == null) continue;
+				
+				changes.setBlock(ExplosionRays.unpackX(position), ExplosionRays.unpackY(position),
+						ExplosionRays.unpackZ(position), block);
+			}
+			
+			clear();
+		}
+		
+		changes.apply(instance).forEach(this::record);
+	}
+	
+	/**
+	 * Forgets all recorded blocks without restoring them.
+	 */
+	public synchronized void clear() {
+		recorded.clear();
+		positions.clear();
+		states.clear();
+	}
+}
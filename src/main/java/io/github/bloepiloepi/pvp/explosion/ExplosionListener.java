@@ -21,7 +21,6 @@ import net.minestom.server.item.ItemStack;
 import net.minestom.server.item.Material;
 import net.minestom.server.sound.SoundEvent;
 import org.jetbrains.annotations.Nullable;
-import org.jglrxavpok.hephaistos.nbt.NBT;
 
 public class ExplosionListener {
 	
@@ -38,7 +37,8 @@ public class ExplosionListener {
 			Block block = instance.getBlock(position);
 			if (!block.compare(Block.TNT)) return;
 			
-			primeTnt(instance, position, player);
+			primeTnt(instance, position, player, 80, config);
+			ExplosionJournal.record(instance, position, block);
 			instance.setBlock(position, Block.AIR);
 			
 			if (!player.isCreative()) {
@@ -105,13 +105,15 @@ public class ExplosionListener {
 			if (charges == 0) return;
 			
 			if (!instance.getDimensionType().isRespawnAnchorSafe()) {
+				ExplosionJournal.record(instance, event.getBlockPosition(), block);
 				instance.setBlock(event.getBlockPosition(), Block.AIR);
-				instance.explode(
+				PvpExplosionSupplier.explode(
+						instance,
 						(float) (event.getBlockPosition().x() + 0.5),
 						(float) (event.getBlockPosition().y() + 0.5),
 						(float) (event.getBlockPosition().z() + 0.5),
 						5.0f,
-						NBT.Compound(NBT -> NBT.setByte("fire", (byte) 1).setByte("anchor", (byte) 1))
+						ExplosionContext.DEFAULT.withFire(true).withAnchor(true)
 				);
 			}
 			
@@ -126,7 +128,12 @@ public class ExplosionListener {
 	}
 	
 	public static void primeTnt(Instance instance, Point blockPosition, @Nullable LivingEntity causingEntity, int fuse) {
-		TntEntity entity = new TntEntity(causingEntity);
+		primeTnt(instance, blockPosition, causingEntity, fuse, ExplosionConfig.DEFAULT);
+	}
+	
+	public static void primeTnt(Instance instance, Point blockPosition, @Nullable LivingEntity causingEntity,
+	                            int fuse, ExplosionConfig config) {
+		TntEntity entity = new TntEntity(causingEntity, config);
 		if (fuse != 80) entity.setFuse(fuse);
 		entity.setInstance(instance, blockPosition.add(0.5, 0, 0.5));
 		SoundManager.sendToAround(
@@ -0,0 +1,216 @@
+package io.github.bloepiloepi.pvp.explosion;
+
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import net.minestom.server.coordinate.Point;
+import net.minestom.server.coordinate.Vec;
+import net.minestom.server.instance.block.Block;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Casts the rays of an explosion to find the blocks it destroys.
+ * <p>
+ * The ray directions and the explosion resistance of every block are computed once.
+ * Blocks are read through an {@link ExplosionBlockReader}, which only looks up a chunk again when the ray enters another chunk.
+ * Block positions are packed into longs, see {@link #pack(int, int, int)}.
+ * <p>
+ * Rays are independent of each other, so for strong explosions they can be cast in parallel on {@link #POOL}.
+ */
+final class ExplosionRays {
+	static final int RAY_COUNT = 1352;
+	private static final double STEP = 0.30000001192092896D;
+	
+	/**
+	 * The pool used for parallel rays and asynchronous explosions,
+	 * so they do not compete with other users of the common pool.
+	 */
+	static final ForkJoinPool POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors(), pool -> {
+		ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+		thread.setName("Pvp-Explosion-" + thread.getPoolIndex());
+		thread.setDaemon(true);
+		return thread;
+	}, null, false);
+	
+	/**
+	 * The normalized ray directions, three doubles per ray.
+	 */
+	private static final double[] DIRECTIONS = new double[RAY_COUNT * 3];
+	
+	/**
+	 * The explosion resistance of each block id, or -1 for air.
+	 */
+	private static final double[] RESISTANCE;
+	
+	static {
+		int ray = 0;
+		for (int x = 0; x < 16; ++x) {
+			for (int y = 0; y < 16; ++y) {
+				for (int z = 0; z < 16; ++z) {
+					if (x == 0 || x == 15 || y == 0 || y == 15 || z == 0 || z == 15) {
+						double xLength = (float) x / 15.0F * 2.0F - 1.0F;
+						double yLength = (float) y / 15.0F * 2.0F - 1.0F;
+						double zLength = (float) z / 15.0F * 2.0F - 1.0F;
+						double length = Math.sqrt(xLength * xLength + yLength * yLength + zLength * zLength);
+						DIRECTIONS[ray * 3] = xLength / length;
+						DIRECTIONS[ray * 3 + 1] = yLength / length;
+						DIRECTIONS[ray * 3 + 2] = zLength / length;
+						ray++;
+					}
+				}
+			}
+		}
+		
+		int maxId = 0;
+		for (Block block : Block.values()) {
+			maxId = Math.max(maxId, block.id());
+		}
+		
+		RESISTANCE = new double[maxId + 1];
+		for (Block block : Block.values()) {
+			RESISTANCE[block.id()] = block.isAir() ? -1 : block.registry().explosionResistance();
+		}
+	}
+	
+	private ExplosionRays() {
+	}
+	
+	/**
+	 * Casts all rays of an explosion.
+	 * The random is only used on the calling thread, so the result only depends on its seed.
+	 * <p>
+	 * Parallel rays read blocks from other threads while the instance keeps ticking,
+	 * so the reader has to be a snapshot when {@code parallel} is true.
+	 *
+	 * @param reader the reader for the blocks of the instance the explosion is in
+	 * @param centerX the x coordinate of the explosion center
+	 * @param centerY the y coordinate of the explosion center
+	 * @param centerZ the z coordinate of the explosion center
+	 * @param strength the strength of the explosion
+	 * @param random the random used for the strength of each ray
+	 * @param parallel whether to split the rays across {@link #POOL}
+	 * @return the packed positions of the destroyed blocks
+	 */
+	static LongSet cast(ExplosionBlockReader reader, double centerX, double centerY, double centerZ,
+	                    float strength, Random random, boolean parallel) {
+		float[] strengths = new float[RAY_COUNT];
+		for (int ray = 0; ray < RAY_COUNT; ray++) {
+			strengths[ray] = strength * (0.7F + random.nextFloat() * 0.6F);
+		}
+		
+		if (parallel) {
+			return POOL.invoke(new RayTask(reader, centerX, centerY, centerZ,
+					strengths, 0, RAY_COUNT));
+		}
+		
+		LongSet blocks = new LongOpenHashSet();
+		cast(reader, centerX, centerY, centerZ, strengths, 0, RAY_COUNT, blocks);
+		return blocks;
+	}
+	
+	private static void cast(ExplosionBlockReader reader, double centerX, double centerY, double centerZ,
+	                         float[] strengths, int fromRay, int toRay, LongSet blocks) {
+		for (int ray = fromRay; ray < toRay; ray++) {
+			double xStep = DIRECTIONS[ray * 3] * STEP;
+			double yStep = DIRECTIONS[ray * 3 + 1] * STEP;
+			double zStep = DIRECTIONS[ray * 3 + 2] * STEP;
+			double x = centerX;
+			double y = centerY;
+			double z = centerZ;
+			
+			float strengthLeft = strengths[ray];
+			for (; strengthLeft > 0.0F; strengthLeft -= 0.225F) {
+				int blockX = (int) Math.floor(x);
+				int blockY = (int) Math.floor(y);
+				int blockZ = (int) Math.floor(z);
+				
+				double resistance = RESISTANCE[reader.getBlock(blockX, blockY, blockZ).id()];
+				if (resistance >= 0) {
+					strengthLeft -= (resistance + 0.3F) * 0.3F;
+					if (strengthLeft > 0.0F) blocks.add(pack(blockX, blockY, blockZ));
+				}
+				
+				x += xStep;
+				y += yStep;
+				z += zStep;
+			}
+		}
+	}
+	
+	/**
+	 * Packs a block position into a long, using 26 bits for x and z and 12 bits for y.
+	 */
+	static long pack(int x, int y, int z) {
+		return ((long) x & 0x3FFFFFF) << 38 | ((long) z & 0x3FFFFFF) << 12 | ((long) y & 0xFFF);
+	}
+	
+	static int unpackX(long packed) {
+		return (int) (packed >> 38);
+	}
+	
+	static int unpackY(long packed) {
+		return (int) (packed << 52 >> 52);
+	}
+	
+	static int unpackZ(long packed) {
+		return (int) (packed << 26 >> 38);
+	}
+	
+	static List<Point> toPoints(LongSet blocks) {
+		List<Point> points = new ArrayList<>(blocks.size());
+		LongIterator iterator = blocks.iterator();
+		while (iterator.hasNext()) {
+			long packed = iterator.nextLong();
+			points.add(new Vec(unpackX(packed), unpackY(packed), unpackZ(packed)));
+		}
+		
+		return points;
+	}
+	
+	/**
+	 * Splits a range of rays in halves until it is small enough, and merges the blocks of both halves.
+	 */
+	private static class RayTask extends RecursiveTask<LongSet> {
+		private static final int RAYS_PER_TASK = 128;
+		
+		private final ExplosionBlockReader reader;
+		private final double centerX, centerY, centerZ;
+		private final float[] strengths;
+		private final int fromRay, toRay;
+		
+		private RayTask(ExplosionBlockReader reader, double centerX, double centerY, double centerZ,
+		                float[] strengths, int fromRay, int toRay) {
+			this.reader = reader;
+			this.centerX = centerX;
+			this.centerY = centerY;
+			this.centerZ = centerZ;
+			this.strengths = strengths;
+			this.fromRay = fromRay;
+			this.toRay = toRay;
+		}
+		
+		@Override
+		protected LongSet compute() {
+			if (toRay - fromRay <= RAYS_PER_TASK) {
+				LongSet blocks = new LongOpenHashSet();
+				ExplosionRays.cast(reader.fork(), centerX, centerY, centerZ, strengths, fromRay, toRay, blocks);
+				return blocks;
+			}
+			
+			int middle = (fromRay + toRay) >>> 1;
+			RayTask first = new RayTask(reader, centerX, centerY, centerZ, strengths, fromRay, middle);
+			RayTask second = new RayTask(reader, centerX, centerY, centerZ, strengths, middle, toRay);
+			first.fork();
+			
+			LongSet blocks = second.compute();
+			blocks.addAll(first.join());
+			return blocks;
+		}
+	}
+}
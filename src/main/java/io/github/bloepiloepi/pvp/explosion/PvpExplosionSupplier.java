@@ -1,13 +1,19 @@
 package io.github.bloepiloepi.pvp.explosion;
 
+import io.github.bloepiloepi.pvp.config.ExplosionConfig;
 import io.github.bloepiloepi.pvp.damage.CustomDamageType;
 import io.github.bloepiloepi.pvp.enchantment.EnchantmentUtils;
 import io.github.bloepiloepi.pvp.entity.PvpPlayer;
 import io.github.bloepiloepi.pvp.events.ExplosionEvent;
+import io.github.bloepiloepi.pvp.utils.SpatialUtils;
+import it.unimi.dsi.fastutil.Pair;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
 import net.minestom.server.MinecraftServer;
 import net.minestom.server.collision.BoundingBox;
 import net.minestom.server.collision.CollisionUtils;
 import net.minestom.server.coordinate.Point;
+import net.minestom.server.coordinate.Pos;
 import net.minestom.server.coordinate.Vec;
 import net.minestom.server.entity.Entity;
 import net.minestom.server.entity.EntityType;
@@ -15,88 +21,187 @@ import net.minestom.server.entity.LivingEntity;
 import net.minestom.server.entity.Player;
 import net.minestom.server.event.EventDispatcher;
 import net.minestom.server.instance.Chunk;
+import net.minestom.server.instance.EntityTracker;
 import net.minestom.server.instance.Explosion;
 import net.minestom.server.instance.ExplosionSupplier;
 import net.minestom.server.instance.Instance;
 import net.minestom.server.instance.block.Block;
 import net.minestom.server.network.packet.server.play.ExplosionPacket;
+import net.minestom.server.utils.PacketUtils;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.jglrxavpok.hephaistos.nbt.NBTCompound;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.stream.Collectors;
 
 public final class PvpExplosionSupplier implements ExplosionSupplier {
-	public static final PvpExplosionSupplier INSTANCE = new PvpExplosionSupplier();
+	public static final PvpExplosionSupplier INSTANCE = new PvpExplosionSupplier(ExplosionConfig.DEFAULT);
 	
-	private PvpExplosionSupplier() {
+	private final ExplosionConfig config;
+	
+	/**
+	 * Creates an explosion supplier using the explosion settings of the given config.
+	 * {@link #INSTANCE} uses the default config.
+	 *
+	 * @param config the config to use
+	 */
+	public PvpExplosionSupplier(@NotNull ExplosionConfig config) {
+		this.config = config;
+	}
+	
+	/**
+	 * Creates an explosion and applies it, passing the context directly to the explosion.
+	 * If the instance doesn't use a {@link PvpExplosionSupplier}, the context is passed as nbt data instead.
+	 *
+	 * @param instance the instance to create the explosion in
+	 * @param centerX the x coordinate of the explosion center
+	 * @param centerY the y coordinate of the explosion center
+	 * @param centerZ the z coordinate of the explosion center
+	 * @param strength the strength of the explosion
+	 * @param context the context of the explosion
+	 */
+	public static void explode(@NotNull Instance instance, float centerX, float centerY, float centerZ,
+	                           float strength, @NotNull ExplosionContext context) {
+		explode(instance, centerX, centerY, centerZ, strength, context, null);
+	}
+	
+	/**
+	 * Creates an explosion like {@link #explode(Instance, float, float, float, float, ExplosionContext)},
+	 * which primes the tnt it hits with the given config instead of the config of the supplier.
+	 * This is used by tnt, so tnt in a chain reaction keeps the config of the tnt which started it.
+	 */
+	static void explode(@NotNull Instance instance, float centerX, float centerY, float centerZ,
+	                    float strength, @NotNull ExplosionContext context, @Nullable ExplosionConfig tntConfig) {
+		if (instance.getExplosionSupplier() instanceof PvpExplosionSupplier supplier) {
+			supplier.createExplosion(centerX, centerY, centerZ, strength, context, null, null, tntConfig).apply(instance);
+		} else {
+			instance.explode(centerX, centerY, centerZ, strength, context.toNbt());
+		}
 	}
 	
 	@Override
 	public Explosion createExplosion(float centerX, float centerY, float centerZ,
 	                                 float strength, @Nullable NBTCompound additionalData) {
+		return createExplosion(centerX, centerY, centerZ, strength, null, additionalData, null, null);
+	}
+	
+	public Explosion createExplosion(float centerX, float centerY, float centerZ,
+	                                 float strength, @NotNull ExplosionContext context) {
+		return createExplosion(centerX, centerY, centerZ, strength, context, null, null, null);
+	}
+	
+	/**
+	 * Creates an explosion which uses the given random for the strength of its rays, the fuse of the tnt it primes
+	 * and the fire it places. With the same seed and the same blocks, the explosion always has the same result,
+	 * whether its rays are cast in parallel or not.
+	 *
+	 * @param centerX the x coordinate of the explosion center
+	 * @param centerY the y coordinate of the explosion center
+	 * @param centerZ the z coordinate of the explosion center
+	 * @param strength the strength of the explosion
+	 * @param context the context of the explosion
+	 * @param random the random to use
+	 * @return the explosion
+	 */
+	public Explosion createExplosion(float centerX, float centerY, float centerZ,
+	                                 float strength, @NotNull ExplosionContext context, @NotNull Random random) {
+		return createExplosion(centerX, centerY, centerZ, strength, context, null, random, null);
+	}
+	
+	private Explosion createExplosion(float centerX, float centerY, float centerZ, float strength,
+	                                  @Nullable ExplosionContext givenContext, @Nullable NBTCompound additionalData,
+	                                  @Nullable Random givenRandom, @Nullable ExplosionConfig tntConfig) {
 		return new Explosion(centerX, centerY, centerZ, strength) {
 			private final Map<Player, Vec> playerKnockback = new HashMap<>();
+			private ExplosionContext context = givenContext;
 			
 			@Override
 			protected List<Point> prepare(Instance instance) {
-				List<Point> blocks = new ArrayList<>();
-				ThreadLocalRandom random = ThreadLocalRandom.current();
+				resolveContext(instance);
+				// Parallel rays are read on other threads while other instances and chunks keep ticking
+				ExplosionBlockReader reader = isParallel() ? snapshot(instance) : ExplosionBlockReader.live(instance);
+				List<Point> blocks = castRays(reader);
+				if (!callEvent(instance, blocks)) return null;
 				
-				boolean breakBlocks = true;
-				if (additionalData != null && additionalData.contains("breakBlocks"))
-					breakBlocks = Objects.requireNonNull(additionalData.getByte("breakBlocks")) == (byte) 1;
+				applyImpacts(instance, computeImpacts(reader, getAffectedEntities(instance)));
+				return blocks;
+			}
+			
+			@Override
+			public void apply(@NotNull Instance instance) {
+				if (config.isAsync()) {
+					applyAsync(instance);
+					return;
+				}
 				
-				if (breakBlocks) {
-					for (int x = 0; x < 16; ++x) {
-						for (int y = 0; y < 16; ++y) {
-							for (int z = 0; z < 16; ++z) {
-								if (x == 0 || x == 15 || y == 0 || y == 15 || z == 0 || z == 15) {
-									double xLength = (float) x / 15.0F * 2.0F - 1.0F;
-									double yLength = (float) y / 15.0F * 2.0F - 1.0F;
-									double zLength = (float) z / 15.0F * 2.0F - 1.0F;
-									double length = Math.sqrt(xLength * xLength + yLength * yLength + zLength * zLength);
-									xLength /= length;
-									yLength /= length;
-									zLength /= length;
-									double centerX = this.getCenterX();
-									double centerY = this.getCenterY();
-									double centerZ = this.getCenterZ();
-									
-									float strengthLeft = this.getStrength() * (0.7F + random.nextFloat() * 0.6F);
-									for (; strengthLeft > 0.0F; strengthLeft -= 0.225F) {
-										Vec position = new Vec(centerX, centerY, centerZ);
-										Block block = instance.getBlock(position);
-										
-										if (!block.isAir()) {
-											double explosionResistance = block.registry().explosionResistance();
-											strengthLeft -= (explosionResistance + 0.3F) * 0.3F;
-											
-											if (strengthLeft > 0.0F) {
-												Vec blockPosition = position.apply(Vec.Operator.FLOOR);
-												if (!blocks.contains(blockPosition)) {
-													blocks.add(blockPosition);
-												}
-											}
-										}
-										
-										centerX += xLength * 0.30000001192092896D;
-										centerY += yLength * 0.30000001192092896D;
-										centerZ += zLength * 0.30000001192092896D;
-									}
-								}
+				List<Point> blocks = prepare(instance);
+				if (blocks == null) return; // Event was cancelled
+				
+				applyBlocks(instance, blocks);
+			}
+			
+			/**
+			 * Copies the blocks and entities around the explosion, calculates the affected blocks and entities
+			 * on another thread and applies the result in the next tick of the instance.
+			 * The explosion event is called when the result is applied, before anything is changed.
+			 */
+			private void applyAsync(Instance instance) {
+				resolveContext(instance);
+				ExplosionBlockReader reader = snapshot(instance);
+				List<AffectedEntity> entities = getAffectedEntities(instance);
+				
+				CompletableFuture.supplyAsync(() -> Pair.of(castRays(reader), computeImpacts(reader, entities)),
+								ExplosionRays.POOL)
+						.whenComplete((result, throwable) -> {
+							if (throwable != null) {
+								MinecraftServer.getExceptionManager().handleException(throwable);
+								return;
 							}
-						}
-					}
-				}
+							
+							instance.scheduleNextTick(ignored -> {
+								List<Point> blocks = result.left();
+								if (!callEvent(instance, blocks)) return;
+								
+								applyImpacts(instance, result.right());
+								applyBlocks(instance, blocks);
+							});
+						});
+			}
+			
+			private boolean isParallel() {
+				return context.breakBlocks() && config.isParallelRays()
+						&& getStrength() >= config.getParallelRayStrength();
+			}
+			
+			/**
+			 * Copies the blocks within reach of both the rays and the exposure rays of this explosion.
+			 */
+			private ExplosionBlockReader snapshot(Instance instance) {
+				return ExplosionBlockReader.snapshot(instance,
+						getCenterX(), getCenterY(), getCenterZ(), getStrength() * 2.0F + 2);
+			}
+			
+			private List<Point> castRays(ExplosionBlockReader reader) {
+				if (!context.breakBlocks()) return new ArrayList<>();
 				
+				return ExplosionRays.toPoints(ExplosionRays.cast(reader, getCenterX(), getCenterY(), getCenterZ(),
+						getStrength(), getRandom(), isParallel()));
+			}
+			
+			/**
+			 * @return false if the event was cancelled
+			 */
+			private boolean callEvent(Instance instance, List<Point> blocks) {
 				// Blocks list may be modified during the event call
 				ExplosionEvent explosionEvent = new ExplosionEvent(instance, blocks);
 				EventDispatcher.call(explosionEvent);
-				if (explosionEvent.isCancelled()) return null;
-				
+				return !explosionEvent.isCancelled();
+			}
+			
+			private List<AffectedEntity> getAffectedEntities(Instance instance) {
 				double strength = this.getStrength() * 2.0F;
 				int minX_ = (int) Math.floor(this.getCenterX() - strength - 1.0D);
 				int maxX_ = (int) Math.floor(this.getCenterX() + strength + 1.0D);
@@ -120,79 +225,125 @@ public final class PvpExplosionSupplier implements ExplosionSupplier {
 				
 				Vec src = new Vec(getCenterX(), getCenterY() - (explosionBox.height() / 2), getCenterZ());
 				
-				Set<Entity> entities = instance.getEntities().stream()
-						.filter(entity -> explosionBox.intersectEntity(src, entity))
-						.collect(Collectors.toSet());
-				Vec centerPoint = new Vec(this.getCenterX(), this.getCenterY(), this.getCenterZ());
-				
-				boolean anchor = false;
-				if (additionalData != null && additionalData.contains("anchor")) {
-					anchor = Boolean.TRUE.equals(additionalData.getBoolean("anchor"));
+				List<AffectedEntity> entities = new ArrayList<>();
+				for (Entity entity : SpatialUtils.getIntersecting(instance, src, explosionBox, EntityTracker.Target.ENTITIES)) {
+					entities.add(new AffectedEntity(entity, entity.getPosition(), entity.getBoundingBox(), entity.getEyeHeight()));
 				}
 				
-				CustomDamageType damageType = anchor ? CustomDamageType.invalidRespawnPointExplosion()
-						: CustomDamageType.explosion(this, getCausingEntity(instance));
-				for (Entity entity : entities) {
-					double currentStrength = entity.getPosition().distance(centerPoint) / strength;
+				return entities;
+			}
+			
+			/**
+			 * Calculates the strength and direction of the explosion for every entity in range.
+			 * Only reads blocks through the reader, so this can be done on another thread.
+			 */
+			private List<Impact> computeImpacts(ExplosionBlockReader reader, List<AffectedEntity> entities) {
+				double strength = this.getStrength() * 2.0F;
+				Vec centerPoint = new Vec(this.getCenterX(), this.getCenterY(), this.getCenterZ());
+				ExplosionExposure exposures = new ExplosionExposure(reader,
+						getCenterX(), getCenterY(), getCenterZ(), strength + 2);
+				
+				List<Impact> impacts = new ArrayList<>();
+				for (AffectedEntity affected : entities) {
+					Entity entity = affected.entity();
+					Pos position = affected.position();
+					double currentStrength = position.distance(centerPoint) / strength;
 					if (currentStrength <= 1.0D) {
-						double dx = entity.getPosition().x() - this.getCenterX();
-						double dy = (entity.getEntityType() == EntityType.TNT ? entity.getPosition().y() :
-								entity.getPosition().y() + entity.getEyeHeight()) - this.getCenterY();
-						double dz = entity.getPosition().z() - this.getCenterZ();
+						double dx = position.x() - this.getCenterX();
+						double dy = (entity.getEntityType() == EntityType.TNT ? position.y() :
+								position.y() + affected.eyeHeight()) - this.getCenterY();
+						double dz = position.z() - this.getCenterZ();
 						double distance = Math.sqrt(dx * dx + dy * dy + dz * dz);
 						if (distance != 0.0D) {
-							dx /= distance;
-							dy /= distance;
-							dz /= distance;
-							double exposure = getExposure(centerPoint, entity);
-							currentStrength = (1.0D - currentStrength) * exposure;
-							float damage = (float) ((currentStrength * currentStrength + currentStrength)
-									/ 2.0D * 7.0D * strength + 1.0D);
-							double knockback = currentStrength;
-							if (entity instanceof LivingEntity living) {
-								if (!living.damage(damageType, damage)) continue;
-								knockback = EnchantmentUtils.getExplosionKnockback(living, currentStrength);
-							}
-							
-							Vec knockbackVec = new Vec(
-									dx * knockback,
-									dy * knockback,
-									dz * knockback
-							);
-							
-							int tps = MinecraftServer.TICK_PER_SECOND;
-							if (entity instanceof Player player) {
-								if (player.getGameMode().canTakeDamage() && !player.isFlying()) {
-									playerKnockback.put(player, knockbackVec);
-									
-									if (player instanceof PvpPlayer custom)
-										custom.addVelocity(knockbackVec.mul(tps));
-								}
-							} else {
-								entity.setVelocity(entity.getVelocity().add(knockbackVec.mul(tps)));
-							}
+							double exposure = exposures.getExposure(position, affected.boundingBox(),
+									entity instanceof Player ? 0 : config.getExposureSamples());
+							impacts.add(new Impact(entity, (1.0D - currentStrength) * exposure,
+									dx / distance, dy / distance, dz / distance));
 						}
 					}
 				}
 				
-				return blocks;
+				return impacts;
 			}
 			
-			@Override
-			public void apply(@NotNull Instance instance) {
-				List<Point> blocks = prepare(instance);
-				if (blocks == null) return; // Event was cancelled
+			/**
+			 * Damages and knocks back the entities hit by the explosion.
+			 */
+			private void applyImpacts(Instance instance, List<Impact> impacts) {
+				double strength = this.getStrength() * 2.0F;
+				double knockbackMultiplier = context.knockbackMultiplier();
+				CustomDamageType damageType = context.anchor() ? CustomDamageType.invalidRespawnPointExplosion()
+						: CustomDamageType.explosion(this, context.causingEntity());
+				for (Impact impact : impacts) {
+					Entity entity = impact.entity();
+					if (entity.isRemoved() || entity.getInstance() != instance) continue;
+					
+					double currentStrength = impact.strength();
+					float damage = (float) ((currentStrength * currentStrength + currentStrength)
+							/ 2.0D * 7.0D * strength + 1.0D);
+					double knockback = currentStrength;
+					if (entity instanceof LivingEntity living) {
+						if (!living.damage(damageType, damage)) continue;
+						knockback = EnchantmentUtils.getExplosionKnockback(living, currentStrength);
+					}
+					knockback *= knockbackMultiplier;
+					
+					Vec knockbackVec = new Vec(
+							impact.dx() * knockback,
+							impact.dy() * knockback,
+							impact.dz() * knockback
+					);
+					
+					int tps = MinecraftServer.TICK_PER_SECOND;
+					if (entity instanceof Player player) {
+						if (player.getGameMode().canTakeDamage() && !player.isFlying()) {
+							playerKnockback.put(player, knockbackVec);
+							
+							if (player instanceof PvpPlayer custom)
+								custom.addVelocity(knockbackVec.mul(tps));
+						}
+					} else {
+						entity.setVelocity(entity.getVelocity().add(knockbackVec.mul(tps)));
+					}
+				}
+			}
+			
+			/**
+			 * Breaks the blocks of the explosion and sends the explosion packets.
+			 */
+			private void applyBlocks(Instance instance, List<Point> blocks) {
+				boolean fire = context.fire();
+				
+				// The event might have changed the blocks, so they are packed again
+				LongSet destroyed = new LongOpenHashSet(blocks.size());
+				for (Point pos : blocks) {
+					destroyed.add(ExplosionRays.pack(pos.blockX(), pos.blockY(), pos.blockZ()));
+				}
+				
+				Random random = getRandom();
+				SectionBlockChanges changes = new SectionBlockChanges();
 				byte[] records = new byte[3 * blocks.size()];
 				for (int i = 0; i < blocks.size(); i++) {
 					final var pos = blocks.get(i);
-					if (instance.getBlock(pos).compare(Block.TNT)) {
-						ExplosionListener.primeTnt(instance, pos, getCausingEntity(instance),
-								ThreadLocalRandom.current().nextInt(20) + 10);
+					final int blockX = pos.blockX();
+					final int blockY = pos.blockY();
+					final int blockZ = pos.blockZ();
+					Block block = instance.getBlock(blockX, blockY, blockZ);
+					ExplosionJournal.record(instance, blockX, blockY, blockZ, block);
+					if (block.compare(Block.TNT)) {
+						ExplosionListener.primeTnt(instance, pos, context.causingEntity(),
+								random.nextInt(20) + 10, tntConfig != null ? tntConfig : config);
 					}
-					instance.setBlock(pos, Block.AIR);
-					final byte x = (byte) (pos.x() - Math.floor(getCenterX()));
-					final byte y = (byte) (pos.y() - Math.floor(getCenterY()));
-					final byte z = (byte) (pos.z() - Math.floor(getCenterZ()));
+					
+					// Fire can only be placed on solid blocks which were not destroyed
+					boolean placeFire = fire && random.nextInt(3) == 0
+							&& !destroyed.contains(ExplosionRays.pack(blockX, blockY - 1, blockZ))
+							&& instance.getBlock(blockX, blockY - 1, blockZ).isSolid();
+					changes.setBlock(blockX, blockY, blockZ, placeFire ? Block.FIRE : Block.AIR);
+					
+					final byte x = (byte) (blockX - Math.floor(getCenterX()));
+					final byte y = (byte) (blockY - Math.floor(getCenterY()));
+					final byte z = (byte) (blockZ - Math.floor(getCenterZ()));
 					records[i * 3] = x;
 					records[i * 3 + 1] = y;
 					records[i * 3 + 2] = z;
@@ -200,46 +351,67 @@ public final class PvpExplosionSupplier implements ExplosionSupplier {
 				
 				Chunk chunk = instance.getChunkAt(getCenterX(), getCenterZ());
 				if (chunk != null) {
+					double maxDistanceSquared = config.getPacketDistance() * config.getPacketDistance();
+					
+					// Players without knockback all receive the same packet, which is only encoded once
+					List<Player> unaffected = new ArrayList<>();
 					for (Player player : chunk.getViewers()) {
-						Vec knockbackVec = playerKnockback.getOrDefault(player, Vec.ZERO);
+						if (maxDistanceSquared > 0) {
+							double dx = player.getPosition().x() - centerX;
+							double dy = player.getPosition().y() - centerY;
+							double dz = player.getPosition().z() - centerZ;
+							if (dx * dx + dy * dy + dz * dz > maxDistanceSquared) continue;
+						}
+						
+						Vec knockbackVec = playerKnockback.get(player);
+						if (knockbackVec == null) {
+							unaffected.add(player);
+							continue;
+						}
+						
 						player.sendPacket(new ExplosionPacket(centerX, centerY, centerZ, strength,
 								records, (float) knockbackVec.x(), (float) knockbackVec.y(), (float) knockbackVec.z()));
 					}
+					
+					if (!unaffected.isEmpty()) {
+						PacketUtils.sendGroupedPacket(unaffected, new ExplosionPacket(centerX, centerY, centerZ, strength,
+								records, 0, 0, 0));
+					}
 				}
 				playerKnockback.clear();
 				
-				if (additionalData != null && additionalData.contains("fire")) {
-					if (Boolean.TRUE.equals(additionalData.getBoolean("fire"))) {
-						ThreadLocalRandom random = ThreadLocalRandom.current();
-						for (Point point : blocks) {
-							if (random.nextInt(3) != 0
-									|| !instance.getBlock(point).isAir()
-									|| !instance.getBlock(point.sub(0, 1, 0)).isSolid())
-								continue;
-							
-							instance.setBlock(point, Block.FIRE);
-						}
-					}
-				}
+				// Applied after the explosion packet, which makes the client remove the blocks itself
+				changes.apply(instance);
 				
 				postSend(instance, blocks);
 			}
 			
-			private LivingEntity getCausingEntity(Instance instance) {
-				LivingEntity causingEntity = null;
-				if (additionalData != null && additionalData.contains("causingEntity")) {
-					UUID causingUuid = UUID.fromString(Objects.requireNonNull(additionalData.getString("causingEntity")));
-					causingEntity = (LivingEntity) instance.getEntities().stream()
-							.filter(entity -> entity instanceof LivingEntity
-									&& entity.getUuid().equals(causingUuid))
-							.findAny().orElse(null);
-				}
-				
-				return causingEntity;
+			/**
+			 * @return the given random, or the random of the current thread
+			 */
+			private Random getRandom() {
+				return givenRandom != null ? givenRandom : ThreadLocalRandom.current();
+			}
+			
+			/**
+			 * Reads the context of this explosion from the nbt data if it wasn't given directly.
+			 */
+			private void resolveContext(Instance instance) {
+				if (context == null) context = ExplosionContext.fromNbt(instance, additionalData);
 			}
 		};
 	}
 	
+	/**
+	 * An entity in range of an explosion, with the properties needed to calculate the explosion.
+	 */
+	private record AffectedEntity(Entity entity, Pos position, BoundingBox boundingBox, double eyeHeight) {}
+	
+	/**
+	 * The effect of an explosion on an entity, before armor and blast protection.
+	 */
+	private record Impact(Entity entity, double strength, double dx, double dy, double dz) {}
+	
 	public static double getExposure(Point center, Entity entity) {
 		BoundingBox box = entity.getBoundingBox();
 		double xStep = 1 / (box.width() * 2 + 1);
@@ -0,0 +1,134 @@
+package io.github.bloepiloepi.pvp.explosion;
+
+import io.github.bloepiloepi.pvp.projectile.StuckArrows;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import net.minestom.server.coordinate.Vec;
+import net.minestom.server.instance.Chunk;
+import net.minestom.server.instance.Instance;
+import net.minestom.server.instance.block.Block;
+import net.minestom.server.network.packet.server.play.MultiBlockChangePacket;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects block changes and applies them grouped by chunk section.
+ * <p>
+ * Blocks are set directly in the chunk and every changed section is sent to the chunk viewers
+ * as a single multi block change, instead of sending a packet for every block.
+ * <p>
+ * Setting blocks directly skips what {@link Instance#setBlock(int, int, int, Block)} does around it.
+ * Block placement rules of the changed blocks and their neighbours are not executed, which explosions can do without,
+ * since they only place air and fire. Block handlers can't be skipped, since plugins rely on them
+ * for things like containers, custom blocks and protection. Blocks which are replaced or placed with a handler
+ * are therefore still set through the instance, which calls {@code onDestroy} and {@code onPlace}
+ * and sends a separate packet for them.
+ * <p>
+ * Changes in chunks which are not loaded are not applied, but returned by {@link #apply(Instance)}.
+ * <p>
+ * Dormant stuck arrows around the changed blocks are woken up, so they fall if their block is gone.
+ */
+final class SectionBlockChanges {
+	private final LongArrayList positions = new LongArrayList();
+	private final List<Block> blocks = new ArrayList<>();
+	
+	void setBlock(int x, int y, int z, Block block) {
+		positions.add(ExplosionRays.pack(x, y, z));
+		blocks.add(block);
+	}
+	
+	/**
+	 * Calls the setter for every change, in the order they were added.
+	 */
+	void forEach(Block.Setter setter) {
+		for (int i = 0; i < positions.size(); i++) {
+			long position = positions.getLong(i);
+			setter.setBlock(ExplosionRays.unpackX(position), ExplosionRays.unpackY(position),
+					ExplosionRays.unpackZ(position), blocks.get(i));
+		}
+	}
+	
+	/**
+	 * Applies the changes in loaded chunks.
+	 *
+	 * @return the changes in chunks which are not loaded, which were not applied
+	 */
+	SectionBlockChanges apply(Instance instance) {
+		SectionBlockChanges skipped = new SectionBlockChanges();
+		if (positions.isEmpty()) return skipped;
+		
+		Long2ObjectMap<IntArrayList> sections = new Long2ObjectOpenHashMap<>();
+		int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, minZ = Integer.MAX_VALUE;
+		int maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE, maxZ = Integer.MIN_VALUE;
+		for (int i = 0; i < positions.size(); i++) {
+			long position = positions.getLong(i);
+			int x = ExplosionRays.unpackX(position);
+			int y = ExplosionRays.unpackY(position);
+			int z = ExplosionRays.unpackZ(position);
+			minX = Math.min(minX, x);
+			minY = Math.min(minY, y);
+			minZ = Math.min(minZ, z);
+			maxX = Math.max(maxX, x);
+			maxY = Math.max(maxY, y);
+			maxZ = Math.max(maxZ, z);
+			long section = ((long) (x >> 4) & 0x3FFFFF) << 42 | ((long) (z >> 4) & 0x3FFFFF) << 20 | ((long) (y >> 4) & 0xFFFFF);
+			sections.computeIfAbsent(section, key -> new IntArrayList()).add(i);
+		}
+		
+		for (Long2ObjectMap.Entry<IntArrayList> entry : sections.long2ObjectEntrySet()) {
+			IntArrayList indices = entry.getValue();
+			long first = positions.getLong(indices.getInt(0));
+			Chunk chunk = instance.getChunk(ExplosionRays.unpackX(first) >> 4, ExplosionRays.unpackZ(first) >> 4);
+			if (chunk == null || !chunk.isLoaded()) {
+				for (int i = 0; i < indices.size(); i++) {
+					int index = indices.getInt(i);
+					skipped.positions.add(positions.getLong(index));
+					skipped.blocks.add(blocks.get(index));
+				}
+				continue;
+			}
+			
+			LongArrayList records = new LongArrayList(indices.size());
+			IntArrayList handled = null;
+			synchronized (chunk) {
+				for (int i = 0; i < indices.size(); i++) {
+					int index = indices.getInt(i);
+					long position = positions.getLong(index);
+					int x = ExplosionRays.unpackX(position);
+					int y = ExplosionRays.unpackY(position);
+					int z = ExplosionRays.unpackZ(position);
+					Block block = blocks.get(index);
+					
+					if (block.handler() != null || chunk.getBlock(x, y, z).handler() != null) {
+						if (handled == null) handled = new IntArrayList();
+						handled.add(index);
+						continue;
+					}
+					
+					chunk.setBlock(x, y, z, block);
+					records.add((long) block.stateId() << 12 | (x & 15) << 8 | (z & 15) << 4 | (y & 15));
+				}
+			}
+			
+			if (!records.isEmpty()) {
+				chunk.sendPacketToViewers(new MultiBlockChangePacket(entry.getLongKey(), false, records.toLongArray()));
+			}
+			
+			if (handled != null) {
+				// Outside the chunk lock, the instance locks the chunk itself
+				for (int i = 0; i < handled.size(); i++) {
+					int index = handled.getInt(i);
+					long position = positions.getLong(index);
+					instance.setBlock(ExplosionRays.unpackX(position), ExplosionRays.unpackY(position),
+							ExplosionRays.unpackZ(position), blocks.get(index));
+				}
+			}
+		}
+		
+		StuckArrows.onBlocksChange(instance, new Vec(minX, minY, minZ), new Vec(maxX, maxY, maxZ));
+		return skipped;
+	}
+}
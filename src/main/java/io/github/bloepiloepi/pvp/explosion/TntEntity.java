@@ -1,23 +1,44 @@
 package io.github.bloepiloepi.pvp.explosion;
 
+import io.github.bloepiloepi.pvp.config.ExplosionConfig;
 import io.github.bloepiloepi.pvp.entity.EntityUtils;
+import io.github.bloepiloepi.pvp.utils.SpatialUtils;
 import net.minestom.server.MinecraftServer;
 import net.minestom.server.coordinate.Vec;
 import net.minestom.server.entity.Entity;
 import net.minestom.server.entity.EntityType;
 import net.minestom.server.entity.LivingEntity;
 import net.minestom.server.entity.metadata.other.PrimedTntMeta;
+import net.minestom.server.instance.EntityTracker;
+import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
-import org.jglrxavpok.hephaistos.nbt.NBT;
 
 import java.util.concurrent.ThreadLocalRandom;
 
 public class TntEntity extends Entity {
+	// Squared, allows a velocity difference of 0.01 blocks per tick (velocity is in blocks per second)
+	private static final double VELOCITY_TOLERANCE = 0.0001 * MinecraftServer.TICK_PER_SECOND * MinecraftServer.TICK_PER_SECOND;
+	
 	private final LivingEntity causingEntity;
+	private final ExplosionConfig config;
+	private int count = 1;
+	private long lastUpdate;
 	
 	public TntEntity(@Nullable LivingEntity causingEntity) {
+		this(causingEntity, ExplosionConfig.DEFAULT);
+	}
+	
+	/**
+	 * Creates primed tnt which merges with other tnt within the merge radius of the given config.
+	 * The config is also used for the tnt primed by the explosion of this tnt, so merging carries over to chain reactions.
+	 *
+	 * @param causingEntity the entity which primed the tnt, or null
+	 * @param config the config the tnt was primed under
+	 */
+	public TntEntity(@Nullable LivingEntity causingEntity, @NotNull ExplosionConfig config) {
 		super(EntityType.TNT);
 		this.causingEntity = causingEntity;
+		this.config = config;
 		
 		double angle = ThreadLocalRandom.current().nextDouble() * 6.2831854820251465;
 		setVelocity(new Vec(-Math.sin(angle) * 0.02, 0.2f, -Math.cos(angle) * 0.02)
@@ -33,24 +54,63 @@ public class TntEntity extends Entity {
 		((PrimedTntMeta) getEntityMeta()).setFuseTime(fuse);
 	}
 	
+	/**
+	 * @return the amount of tnt this entity represents, more than 1 if other tnt was merged into it
+	 */
+	public int getCount() {
+		return count;
+	}
+	
+	/**
+	 * @return the config this tnt was primed under
+	 */
+	public @NotNull ExplosionConfig getConfig() {
+		return config;
+	}
+	
 	@Override
 	public void update(long time) {
 		if (onGround) velocity = velocity.mul(0.7, -0.5, 0.7);
 		int newFuse = getFuse() - 1;
 		setFuse(newFuse);
+		if (config.getTntMergeRadius() > 0) mergeNearby(time, newFuse);
+		lastUpdate = time;
+		
 		if (newFuse <= 0) {
 			remove();
-			instance.explode(
+			PvpExplosionSupplier.explode(
+					instance,
 					(float) position.x(),
 					(float) EntityUtils.getBodyY(this, 0.0625),
 					(float) position.z(),
 					4.0f,
-					causingEntity == null ? null
-							: NBT.Compound(NBT -> NBT.setString("causingEntity", causingEntity.getUuid().toString()))
+					ExplosionContext.of(causingEntity).withKnockbackMultiplier(count),
+					config
 			);
 		}
 	}
 	
+	/**
+	 * Merges other tnt within the merge radius into this one.
+	 * If this tnt explodes this tick, all tnt exploding this tick is merged, regardless of velocity.
+	 * Otherwise only tnt with the same fuse and velocity is merged.
+	 */
+	private void mergeNearby(long time, int fuse) {
+		for (Entity entity : SpatialUtils.getInRadius(instance, position,
+				config.getTntMergeRadius(), EntityTracker.Target.ENTITIES)) {
+			if (entity == this || entity.isRemoved() || !(entity instanceof TntEntity other)) continue;
+			
+			// The other tnt might not have been updated yet this tick
+			int otherFuse = other.lastUpdate == time ? other.getFuse() : other.getFuse() - 1;
+			boolean mergeable = fuse <= 0 ? otherFuse <= 0
+					: otherFuse == fuse && other.velocity.distanceSquared(velocity) <= VELOCITY_TOLERANCE;
+			if (!mergeable) continue;
+			
+			count += other.count;
+			other.remove();
+		}
+	}
+	
 	@Override
 	public double getEyeHeight() {
 		return 0.15;
@@ -1,7 +1,7 @@
 package io.github.bloepiloepi.pvp.food;
 
+import io.github.bloepiloepi.pvp.entity.CooldownManager;
 import io.github.bloepiloepi.pvp.entity.EntityUtils;
-import io.github.bloepiloepi.pvp.entity.Tracker;
 import io.github.bloepiloepi.pvp.potion.PotionListener;
 import io.github.bloepiloepi.pvp.utils.SoundManager;
 import net.kyori.adventure.sound.Sound;
@@ -146,7 +146,7 @@ public class FoodComponents {
 				}
 			}
 			
-			Tracker.setCooldown(player, Material.CHORUS_FRUIT, 20);
+			CooldownManager.setCooldown(player, Material.CHORUS_FRUIT, 20);
 		}).build(Material.CHORUS_FRUIT);
 	}
 	
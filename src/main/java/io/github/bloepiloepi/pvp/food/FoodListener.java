@@ -4,7 +4,8 @@ import io.github.bloepiloepi.pvp.config.FoodConfig;
 import io.github.bloepiloepi.pvp.config.PvPConfig;
 import io.github.bloepiloepi.pvp.entity.EntityUtils;
 import io.github.bloepiloepi.pvp.entity.PvpPlayer;
-import io.github.bloepiloepi.pvp.entity.Tracker;
+import io.github.bloepiloepi.pvp.entity.PvpState;
+import io.github.bloepiloepi.pvp.utils.CombatClock;
 import io.github.bloepiloepi.pvp.utils.SoundManager;
 import it.unimi.dsi.fastutil.Pair;
 import net.kyori.adventure.sound.Sound;
@@ -31,8 +32,9 @@ public class FoodListener {
 		EventNode<PlayerInstanceEvent> node = EventNode.type("food-events", PvPConfig.PLAYER_INSTANCE_FILTER);
 		
 		node.addListener(PlayerTickEvent.class, event -> {
-			if (Tracker.hungerManager.containsKey(event.getPlayer().getUuid())) {
-				Tracker.hungerManager.get(event.getPlayer().getUuid()).update(config);
+			PvpState state = PvpState.get(event.getPlayer());
+			if (state != null) {
+				state.getHungerManager().update(config);
 			}
 		});
 		
@@ -59,7 +61,7 @@ public class FoodListener {
 		node.addListener(EventListener.builder(PlayerEatEvent.class).handler(event -> {
 			Player player = event.getPlayer();
 			ItemStack stack = event.getItemStack();
-			Tracker.hungerManager.get(player.getUuid()).eat(stack.material());
+			PvpState.getOrCreate(player).getHungerManager().eat(stack.material());
 			
 			FoodComponent component = FoodComponents.fromMaterial(stack.material());
 			assert component != null;
@@ -155,7 +157,7 @@ public class FoodListener {
 		FoodComponent component = FoodComponents.fromMaterial(stack.material());
 		
 		long useTime = getUseTime(component);
-		long usedDuration = System.currentTimeMillis() - Tracker.itemUseStartTime.get(player.getUuid());
+		long usedDuration = CombatClock.get().getMillis() - PvpState.getOrCreate(player).getItemUseStartTime();
 		long usedTicks = usedDuration / MinecraftServer.TICK_MS;
 		long remainingUseTicks = useTime - usedTicks;
 		
@@ -38,8 +38,13 @@ public class HungerManager {
 		Difficulty difficulty = MinecraftServer.getDifficulty();
 		
 		if (config.isNaturalExhaustionEnabled()) {
-			if (this.exhaustion > 4.0F) {
-				this.exhaustion -= 4.0F;
+			boolean exhausted;
+			synchronized (this) {
+				exhausted = this.exhaustion > 4.0F;
+				if (exhausted) this.exhaustion -= 4.0F;
+			}
+			
+			if (exhausted) {
 				if (player.getFoodSaturation() > 0.0F) {
 					player.setFoodSaturation(Math.max(player.getFoodSaturation() - 1.0F, 0.0F));
 				} else if (difficulty != Difficulty.PEACEFUL) {
@@ -88,7 +93,11 @@ public class HungerManager {
 	
 	public void addExhaustion(float exhaustion) {
 		PlayerExhaustEvent playerExhaustEvent = new PlayerExhaustEvent(player, exhaustion);
-		EventDispatcher.callCancellable(playerExhaustEvent, () ->
-				this.exhaustion = Math.min(this.exhaustion + playerExhaustEvent.getAmount(), 40.0F));
+		EventDispatcher.callCancellable(playerExhaustEvent, () -> {
+			// Exhaustion can be added by other entities (e.g. when attacking), so it is synchronized
+			synchronized (this) {
+				this.exhaustion = Math.min(this.exhaustion + playerExhaustEvent.getAmount(), 40.0F);
+			}
+		});
 	}
 }
@@ -1,7 +1,8 @@
 package io.github.bloepiloepi.pvp.legacy;
 
 import io.github.bloepiloepi.pvp.config.PvPConfig;
-import io.github.bloepiloepi.pvp.entity.Tracker;
+import io.github.bloepiloepi.pvp.entity.PvpState;
+import io.github.bloepiloepi.pvp.utils.CombatClock;
 import net.minestom.server.entity.Player;
 import net.minestom.server.event.EventListener;
 import net.minestom.server.event.EventNode;
@@ -38,7 +39,7 @@ public class SwordBlockHandler {
 		
 		node.addListener(PlayerHandAnimationEvent.class, event -> {
 			if (event.getHand() == Player.Hand.MAIN) {
-				Tracker.lastSwingTime.put(event.getPlayer().getUuid(), System.currentTimeMillis());
+				PvpState.getOrCreate(event.getPlayer()).setLastSwingTime(CombatClock.get().getMillis());
 			}
 		});
 		
@@ -47,16 +48,17 @@ public class SwordBlockHandler {
 	
 	private static void handleUseItem(PlayerUseItemEvent event) {
 		Player player = event.getPlayer();
+		PvpState state = PvpState.getOrCreate(player);
 		
 		if (event.getHand() == Player.Hand.MAIN && isSword(event.getItemStack())
-				&& !Tracker.blockingSword.get(player.getUuid())) {
-			long elapsedSwingTime = System.currentTimeMillis() - Tracker.lastSwingTime.get(player.getUuid());
+				&& !state.isBlockingSword()) {
+			long elapsedSwingTime = CombatClock.get().getMillis() - state.getLastSwingTime();
 			if (elapsedSwingTime < 50) {
 				return;
 			}
 			
-			Tracker.blockReplacementItem.put(player.getUuid(), player.getItemInOffHand());
-			Tracker.blockingSword.put(player.getUuid(), true);
+			state.setBlockReplacementItem(player.getItemInOffHand());
+			state.setBlockingSword(true);
 			
 			player.setItemInOffHand(SHIELD);
 			player.refreshActiveHand(true, true, false);
@@ -65,9 +67,11 @@ public class SwordBlockHandler {
 	}
 	
 	private static void unblock(Player player) {
-		if (Tracker.blockReplacementItem.containsKey(player.getUuid())) {
-			Tracker.blockingSword.put(player.getUuid(), false);
-			player.setItemInOffHand(Tracker.blockReplacementItem.get(player.getUuid()));
+		PvpState state = PvpState.getOrCreate(player);
+		ItemStack replacementItem = state.getBlockReplacementItem();
+		if (replacementItem != null) {
+			state.setBlockingSword(false);
+			player.setItemInOffHand(replacementItem);
 		}
 	}
 	
@@ -80,7 +84,7 @@ public class SwordBlockHandler {
 	private static void handleSwapItem(PlayerSwapItemEvent event) {
 		Player player = event.getPlayer();
 		if (player.getItemInOffHand().material() == Material.SHIELD
-				&& Tracker.blockingSword.get(player.getUuid())) {
+				&& PvpState.getOrCreate(player).isBlockingSword()) {
 			event.setCancelled(true);
 		}
 	}
@@ -88,7 +92,7 @@ public class SwordBlockHandler {
 	private static void handleChangeSlot(PlayerChangeHeldSlotEvent event) {
 		Player player = event.getPlayer();
 		if (player.getItemInOffHand().material() == Material.SHIELD
-				&& Tracker.blockingSword.get(player.getUuid())) {
+				&& PvpState.getOrCreate(player).isBlockingSword()) {
 			unblock(player);
 		}
 	}
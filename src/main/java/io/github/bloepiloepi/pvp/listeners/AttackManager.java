@@ -4,10 +4,11 @@ import io.github.bloepiloepi.pvp.config.AttackConfig;
 import io.github.bloepiloepi.pvp.config.PvPConfig;
 import io.github.bloepiloepi.pvp.damage.CustomDamageType;
 import io.github.bloepiloepi.pvp.enchantment.EnchantmentUtils;
+import io.github.bloepiloepi.pvp.enchantment.WeaponProfile;
 import io.github.bloepiloepi.pvp.entity.EntityGroup;
 import io.github.bloepiloepi.pvp.entity.EntityUtils;
 import io.github.bloepiloepi.pvp.entity.PvpPlayer;
-import io.github.bloepiloepi.pvp.entity.Tracker;
+import io.github.bloepiloepi.pvp.entity.PvpState;
 import io.github.bloepiloepi.pvp.enums.Tool;
 import io.github.bloepiloepi.pvp.events.EntityKnockbackEvent;
 import io.github.bloepiloepi.pvp.events.FinalAttackEvent;
@@ -16,6 +17,7 @@ import io.github.bloepiloepi.pvp.events.PlayerSpectateEvent;
 import io.github.bloepiloepi.pvp.legacy.LegacyKnockbackSettings;
 import io.github.bloepiloepi.pvp.utils.ItemUtils;
 import io.github.bloepiloepi.pvp.utils.SoundManager;
+import io.github.bloepiloepi.pvp.utils.SpatialUtils;
 import net.kyori.adventure.text.Component;
 import net.minestom.server.attribute.Attribute;
 import net.minestom.server.collision.BoundingBox;
@@ -29,6 +31,7 @@ import net.minestom.server.event.entity.EntityAttackEvent;
 import net.minestom.server.event.player.PlayerChangeHeldSlotEvent;
 import net.minestom.server.event.player.PlayerHandAnimationEvent;
 import net.minestom.server.event.trait.EntityInstanceEvent;
+import net.minestom.server.instance.EntityTracker;
 import net.minestom.server.network.packet.server.play.EntityAnimationPacket;
 import net.minestom.server.network.packet.server.play.ParticlePacket;
 import net.minestom.server.particle.Particle;
@@ -70,15 +73,16 @@ public class AttackManager {
 	
 	@SuppressWarnings("UnstableApiUsage")
 	public static float getAttackCooldownProgress(Player player, float baseTime) {
-		return MathUtils.clamp(((float) Tracker.lastAttackedTicks.get(player.getUuid()) + baseTime) / getAttackCooldownProgressPerTick(player), 0.0F, 1.0F);
+		return MathUtils.clamp(((float) PvpState.getOrCreate(player).getLastAttackedTicks() + baseTime) / getAttackCooldownProgressPerTick(player), 0.0F, 1.0F);
 	}
 	
 	public static void resetLastAttackedTicks(Player player) {
-		Tracker.lastAttackedTicks.put(player.getUuid(), 0);
+		PvpState.getOrCreate(player).setLastAttackedTicks(0);
 	}
 	
 	public static void spectateTick(Player player) {
-		Entity spectating = Tracker.spectating.get(player.getUuid());
+		PvpState state = PvpState.getOrCreate(player);
+		Entity spectating = state.getSpectating();
 		if (spectating == null || spectating == player) return;
 		
 		//This is to make sure other players don't see the player standing still while spectating
@@ -87,7 +91,7 @@ public class AttackManager {
 		
 		if (player.getEntityMeta().isSneaking() || spectating.isRemoved() || (spectating instanceof LivingEntity livingSpectating && livingSpectating.isDead())) {
 			player.stopSpectating();
-			Tracker.spectating.remove(player.getUuid());
+			state.setSpectating(null);
 		}
 	}
 	
@@ -111,7 +115,7 @@ public class AttackManager {
 		PlayerSpectateEvent playerSpectateEvent = new PlayerSpectateEvent(player, target);
 		EventDispatcher.callCancellable(playerSpectateEvent, () -> {
 			player.spectate(target);
-			Tracker.spectating.put(player.getUuid(), target);
+			PvpState.getOrCreate(player).setSpectating(target);
 		});
 	}
 	
@@ -121,12 +125,13 @@ public class AttackManager {
 			return;
 		}
 		
+		WeaponProfile weapon = WeaponProfile.of(attacker.getItemInMainHand());
 		float damage = attacker.getAttributeValue(Attribute.ATTACK_DAMAGE);
 		float enchantedDamage;
 		if (target instanceof LivingEntity livingTarget) {
-			enchantedDamage = EnchantmentUtils.getAttackDamage(attacker.getItemInMainHand(), EntityGroup.ofEntity(livingTarget), config.isLegacy());
+			enchantedDamage = weapon.getAttackDamage(EntityGroup.ofEntity(livingTarget), config.isLegacy());
 		} else {
-			enchantedDamage = EnchantmentUtils.getAttackDamage(attacker.getItemInMainHand(), EntityGroup.DEFAULT, config.isLegacy());
+			enchantedDamage = weapon.getAttackDamage(EntityGroup.DEFAULT, config.isLegacy());
 		}
 		
 		float i = config.isAttackCooldownEnabled() && attacker instanceof Player player ? getAttackCooldownProgress(player, 0.5F) : 1.0F;
@@ -136,7 +141,7 @@ public class AttackManager {
 		
 		boolean strongAttack = i > 0.9F;
 		boolean sprintAttack = attacker.isSprinting() && strongAttack;
-		int knockback = EnchantmentUtils.getKnockback(attacker);
+		int knockback = weapon.getKnockback();
 		
 		boolean critical = strongAttack && !EntityUtils.isClimbing(attacker) && attacker.getVelocity().y() < 0 && !attacker.isOnGround() && !EntityUtils.hasEffect(attacker, PotionEffect.BLINDNESS) && attacker.getVehicle() == null && target instanceof LivingEntity;
 		if (!config.isLegacy()) {
@@ -149,11 +154,8 @@ public class AttackManager {
 			Pos previousPosition = EntityUtils.getPreviousPosition(attacker);
 			if (previousPosition != null) {
 				double lastMoveDistance = previousPosition.distance(attacker.getPosition()) * 0.6;
-				if (lastMoveDistance < attacker.getAttributeValue(Attribute.MOVEMENT_SPEED)) {
-					Tool tool = Tool.fromMaterial(attacker.getItemInMainHand().material());
-					if (tool != null && tool.isSword()) {
-						sweeping = true;
-					}
+				if (lastMoveDistance < attacker.getAttributeValue(Attribute.MOVEMENT_SPEED) && weapon.isSword()) {
+					sweeping = true;
 				}
 			}
 		}
@@ -248,12 +250,11 @@ public class AttackManager {
 		}
 		
 		if (sweeping) {
-			float sweepingDamage = 1.0F + EnchantmentUtils.getSweepingMultiplier(attacker) * damage;
+			float sweepingDamage = 1.0F + weapon.getSweepingMultiplier() * damage;
 			BoundingBox boundingBox = target.getBoundingBox().expand(1.0D, 0.25D, 1.0D);
-			Objects.requireNonNull(target.getInstance()).getEntities().stream()
-					.filter(entity -> boundingBox.intersectEntity(target.getPosition(), entity))
-					.filter(LivingEntity.class::isInstance)
-					.map(LivingEntity.class::cast).forEach(entity -> {
+			SpatialUtils.getIntersecting(Objects.requireNonNull(target.getInstance()),
+					target.getPosition(), boundingBox, EntityTracker.Target.ENTITIES).forEach(nearby -> {
+						if (!(nearby instanceof LivingEntity entity)) return;
 						if (entity == target) return;
 						if (entity == attacker) return;
 						if (entity.getEntityMeta() instanceof ArmorStandMeta) return;
@@ -307,13 +308,13 @@ public class AttackManager {
 		EnchantmentUtils.onTargetDamaged(attacker, target);
 		//TODO target and user damaged should also work when non-player mob attacks (mobs, arrows, trident)
 		
-		Tool tool = Tool.fromMaterial(attacker.getItemInMainHand().material());
+		Tool tool = weapon.getTool();
 		if (tool != null && config.isToolDamageEnabled()) {
 			ItemUtils.damageEquipment(attacker, EquipmentSlot.MAIN_HAND, (tool.isSword() || tool == Tool.TRIDENT) ? 1 : 2);
 		}
 		
 		if (target instanceof LivingEntity livingTarget) {
-			int fireAspect = EnchantmentUtils.getFireAspect(attacker);
+			int fireAspect = weapon.getFireAspect();
 			if (fireAspect > 0) {
 				EntityUtils.setOnFireForSeconds(target, fireAspect * 4);
 			}
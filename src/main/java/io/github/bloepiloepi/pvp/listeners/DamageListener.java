@@ -4,12 +4,14 @@ import io.github.bloepiloepi.pvp.config.DamageConfig;
 import io.github.bloepiloepi.pvp.config.PvPConfig;
 import io.github.bloepiloepi.pvp.damage.CustomDamageType;
 import io.github.bloepiloepi.pvp.damage.CustomEntityDamage;
-import io.github.bloepiloepi.pvp.enchantment.EnchantmentUtils;
+import io.github.bloepiloepi.pvp.enchantment.DefenseProfile;
 import io.github.bloepiloepi.pvp.entity.EntityUtils;
-import io.github.bloepiloepi.pvp.entity.Tracker;
+import io.github.bloepiloepi.pvp.entity.PvpState;
 import io.github.bloepiloepi.pvp.events.*;
 import io.github.bloepiloepi.pvp.legacy.LegacyKnockbackSettings;
 import io.github.bloepiloepi.pvp.potion.PotionListener;
+import io.github.bloepiloepi.pvp.utils.BlockProperties;
+import io.github.bloepiloepi.pvp.utils.CombatClock;
 import io.github.bloepiloepi.pvp.utils.DamageUtils;
 import io.github.bloepiloepi.pvp.utils.ItemUtils;
 import io.github.bloepiloepi.pvp.utils.SoundManager;
@@ -33,7 +35,6 @@ import net.minestom.server.event.entity.EntityTickEvent;
 import net.minestom.server.event.instance.RemoveEntityFromInstanceEvent;
 import net.minestom.server.event.player.PlayerMoveEvent;
 import net.minestom.server.event.trait.EntityInstanceEvent;
-import net.minestom.server.gamedata.tags.Tag;
 import net.minestom.server.instance.block.Block;
 import net.minestom.server.item.ItemStack;
 import net.minestom.server.item.Material;
@@ -76,15 +77,16 @@ public class DamageListener {
 
 	private static void handleEntityFallDamage(LivingEntity livingEntity, Pos currentPosition, Pos newPosition, boolean isOnGround) {
 		double dy = newPosition.y() - currentPosition.y();
-		Double fallDistance = Tracker.fallDistance.getOrDefault(livingEntity.getUuid(), 0.0);
+		PvpState state = PvpState.getOrCreate(livingEntity);
+		double fallDistance = state.getFallDistance();
 
 		if ((livingEntity instanceof Player player && player.isFlying()) || EntityUtils.hasEffect(livingEntity, PotionEffect.LEVITATION)
 				|| EntityUtils.hasEffect(livingEntity, PotionEffect.SLOW_FALLING) || dy > 0) {
-			Tracker.fallDistance.put(livingEntity.getUuid(), 0.0);
+			state.setFallDistance(0.0);
 			return;
 		}
 		if (livingEntity.isFlyingWithElytra() && livingEntity.getVelocity().y() > -0.5) {
-			Tracker.fallDistance.put(livingEntity.getUuid(), 1.0);
+			state.setFallDistance(1.0);
 			return;
 		}
 
@@ -107,7 +109,7 @@ public class DamageListener {
 		}
 
 		if (isOnGround) {
-			Tracker.fallDistance.put(livingEntity.getUuid(), 0.0);
+			state.setFallDistance(0.0);
 
 			if (livingEntity instanceof Player player && !player.getGameMode().canTakeDamage()) return;
 			int damage = getFallDamage(livingEntity, fallDistance);
@@ -123,30 +125,21 @@ public class DamageListener {
 				livingEntity.damage(CustomDamageType.FALL, damage);
 			}
 		} else if (dy < 0) {
-			Tracker.fallDistance.put(livingEntity.getUuid(), fallDistance - dy);
+			state.setFallDistance(fallDistance - dy);
 		}
 	}
 
 	private static int getFallDamage(LivingEntity livingEntity, double fallDistance) {
-		float reduce = EntityUtils.hasEffect(livingEntity, PotionEffect.JUMP_BOOST)
-				? EntityUtils.getEffect(livingEntity, PotionEffect.JUMP_BOOST).amplifier() + 1
-				: 0;
+		float reduce = EntityUtils.getAmplifier(livingEntity, PotionEffect.JUMP_BOOST) + 1;
 		return (int) Math.ceil(fallDistance - 3.0 - reduce);
 	}
 
 	private static Point getLandingPos(LivingEntity livingEntity, Pos position) {
 		position = position.add(0, -0.2, 0);
 		if (Objects.requireNonNull(livingEntity.getInstance()).getBlock(position).isAir()) {
-			position = position.add(0, -1, 0);
-			Block block = livingEntity.getInstance().getBlock(position);
-			Tag fences = MinecraftServer.getTagManager().getTag(Tag.BasicType.BLOCKS, "minecraft:fences");
-			Tag walls = MinecraftServer.getTagManager().getTag(Tag.BasicType.BLOCKS, "minecraft:walls");
-			Tag fenceGates = MinecraftServer.getTagManager().getTag(Tag.BasicType.BLOCKS, "minecraft:fence_gates");
-			assert fences != null;
-			assert walls != null;
-			assert fenceGates != null;
-			if (fences.contains(block.namespace()) || walls.contains(block.namespace()) || fenceGates.contains(block.namespace())) {
-				return position;
+			Pos below = position.add(0, -1, 0);
+			if (BlockProperties.isFenceLike(livingEntity.getInstance().getBlock(below))) {
+				return below;
 			}
 		}
 
@@ -195,10 +188,11 @@ public class DamageListener {
 			amount *= 0.75F;
 		}
 
+		PvpState state = PvpState.getOrCreate(entity);
 		Entity attacker = type.getEntity();
 		if (entity instanceof Player && attacker instanceof LivingEntity) {
-			Tracker.lastDamagedBy.put(entity.getUuid(), (LivingEntity) attacker);
-			Tracker.lastDamageTime.put(entity.getUuid(), System.currentTimeMillis());
+			state.setLastDamagedBy((LivingEntity) attacker);
+			state.setLastDamageTime(CombatClock.get().getMillis());
 		}
 
 		boolean shield = false;
@@ -243,20 +237,19 @@ public class DamageListener {
 			}
 		}
 
-		boolean hurtSoundAndAnimation = true;
-		float amountBeforeProcessing = amount;
-		if (Tracker.invulnerableTime.getOrDefault(entity.getUuid(), 0) > 10) {
-			float lastDamage = Tracker.lastDamageTaken.get(entity.getUuid());
-
-			if (amount <= lastDamage) {
-				event.setCancelled(true);
-				return;
-			}
+		// Checks and starts the invulnerability at once, attackers on other threads may hit at the same time
+		PvpState.Hit hit = state.tryHit(CombatClock.get().getTick(), amount,
+				config.getInvulnerabilityTicks() + 10, 10);
+		if (hit == null) {
+			event.setCancelled(true);
+			return;
+		}
 
-			amount = applyDamage(entity, type, amount - lastDamage, config);
-			hurtSoundAndAnimation = false;
-		} else {
+		boolean hurtSoundAndAnimation = hit.full();
+		if (hurtSoundAndAnimation) {
 			amount = applyDamage(entity, type, amount, config);
+		} else {
+			amount = applyDamage(entity, type, amount - hit.previous().lastDamage(), config);
 		}
 
 		FinalDamageEvent finalDamageEvent = new FinalDamageEvent(entity, type, amount, config.getInvulnerabilityTicks());
@@ -266,18 +259,19 @@ public class DamageListener {
 
 		boolean register = config.isLegacy() || finalDamageEvent.getDamage() > 0.0F;
 		if (register && entity instanceof Player) {
-			Tracker.combatManager.get(entity.getUuid()).recordDamage(type, amount);
+			state.getCombatManager().recordDamage(type, amount);
 		}
 
 		if (!register || finalDamageEvent.isCancelled()) {
+			state.undoHit(hit);
 			event.setCancelled(true);
 			return;
 		}
 
-		Tracker.lastDamageTaken.put(entity.getUuid(), amountBeforeProcessing);
-
 		if (hurtSoundAndAnimation) {
-			Tracker.invulnerableTime.put(entity.getUuid(), finalDamageEvent.getInvulnerabilityTicks() + 10);
+			if (finalDamageEvent.getInvulnerabilityTicks() != config.getInvulnerabilityTicks()) {
+				state.setInvulnerableTime(finalDamageEvent.getInvulnerabilityTicks() + 10);
+			}
 
 			if (shield) {
 				entity.triggerStatus((byte) 29);
@@ -492,7 +486,7 @@ public class DamageListener {
 			if (amount <= 0.0F) {
 				return 0.0F;
 			} else {
-				k = EnchantmentUtils.getProtectionAmount(EntityUtils.getArmorItems(entity), type);
+				k = DefenseProfile.of(entity).getProtectionAmount(type);
 				if (!config.isLegacy()) {
 					if (k > 0) {
 						amount = DamageUtils.getInflictedDamage(amount, (float) k);
@@ -0,0 +1,61 @@
+package io.github.bloepiloepi.pvp.potion;
+
+import net.minestom.server.entity.Entity;
+import net.minestom.server.potion.Potion;
+import net.minestom.server.potion.PotionEffect;
+import net.minestom.server.potion.TimedPotion;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * The active potion effects of an entity, indexed by effect id.
+ * <p>
+ * The index is kept up to date by the tracker listening to
+ * {@link net.minestom.server.event.entity.EntityPotionAddEvent} and {@link net.minestom.server.event.entity.EntityPotionRemoveEvent}.
+ * Lookups don't lock or allocate, changes copy the array.
+ */
+public class EffectIndex {
+	private volatile Potion[] potions = new Potion[0];
+	
+	public EffectIndex(@NotNull Entity entity) {
+		for (TimedPotion potion : entity.getActiveEffects()) {
+			add(potion.getPotion());
+		}
+	}
+	
+	public @Nullable Potion get(@NotNull PotionEffect effect) {
+		Potion[] potions = this.potions;
+		int id = effect.id();
+		return id < potions.length ? potions[id] : null;
+	}
+	
+	public boolean has(@NotNull PotionEffect effect) {
+		return get(effect) != null;
+	}
+	
+	/**
+	 * @return the amplifier of the effect, or -1 if the effect is not active
+	 */
+	public int getAmplifier(@NotNull PotionEffect effect) {
+		Potion potion = get(effect);
+		return potion == null ? -1 : potion.amplifier();
+	}
+	
+	public synchronized void add(@NotNull Potion potion) {
+		int id = potion.effect().id();
+		Potion[] potions = Arrays.copyOf(this.potions, Math.max(this.potions.length, id + 1));
+		potions[id] = potion;
+		this.potions = potions;
+	}
+	
+	public synchronized void remove(@NotNull PotionEffect effect) {
+		int id = effect.id();
+		if (id >= potions.length || potions[id] == null) return;
+		
+		Potion[] potions = this.potions.clone();
+		potions[id] = null;
+		this.potions = potions;
+	}
+}
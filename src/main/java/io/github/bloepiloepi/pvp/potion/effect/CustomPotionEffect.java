@@ -3,7 +3,7 @@ package io.github.bloepiloepi.pvp.potion.effect;
 import io.github.bloepiloepi.pvp.damage.CustomDamageType;
 import io.github.bloepiloepi.pvp.entity.EntityGroup;
 import io.github.bloepiloepi.pvp.entity.EntityUtils;
-import io.github.bloepiloepi.pvp.entity.Tracker;
+import io.github.bloepiloepi.pvp.entity.PvpState;
 import net.minestom.server.attribute.Attribute;
 import net.minestom.server.attribute.AttributeInstance;
 import net.minestom.server.attribute.AttributeModifier;
@@ -73,7 +73,7 @@ public class CustomPotionEffect {
 				return;
 			} else if (potionEffect == PotionEffect.SATURATION) {
 				if (((Player) entity).isOnline()) {
-					Tracker.hungerManager.get(entity.getUuid()).add(amplifier + 1, 1.0F);
+					PvpState.getOrCreate(entity).getHungerManager().add(amplifier + 1, 1.0F);
 				}
 				return;
 			}
@@ -6,8 +6,11 @@ import io.github.bloepiloepi.pvp.entity.EntityUtils;
 import io.github.bloepiloepi.pvp.events.PickupArrowEvent;
 import io.github.bloepiloepi.pvp.utils.EffectManager;
 import io.github.bloepiloepi.pvp.utils.SoundManager;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.ints.IntSet;
 import net.kyori.adventure.sound.Sound;
 import net.minestom.server.MinecraftServer;
+import net.minestom.server.coordinate.Point;
 import net.minestom.server.coordinate.Pos;
 import net.minestom.server.coordinate.Vec;
 import net.minestom.server.entity.Entity;
@@ -26,9 +29,8 @@ import net.minestom.server.utils.MathUtils;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.HashSet;
 import java.util.Objects;
-import java.util.Set;
+import java.util.UUID;
 import java.util.concurrent.ThreadLocalRandom;
 
 public abstract class AbstractArrow extends CustomEntityProjectile {
@@ -42,7 +44,13 @@ public abstract class AbstractArrow extends CustomEntityProjectile {
 	private int knockback;
 	private SoundEvent soundEvent = getDefaultSound();
 	
-	private final Set<Integer> piercingIgnore = new HashSet<>();
+	// Only created for arrows with piercing, most arrows never hit more than one entity
+	private @Nullable IntSet piercingIgnore;
+	
+	// Managed by StuckArrows, the instance and chunk are kept while woken up arrows are still stuck
+	boolean dormant;
+	@Nullable UUID dormantInstance;
+	long dormantChunk;
 	
 	public AbstractArrow(@Nullable Entity shooter, @NotNull EntityType entityType) {
 		super(shooter, entityType, false);
@@ -52,6 +60,21 @@ public abstract class AbstractArrow extends CustomEntityProjectile {
 		}
 	}
 	
+	@Override
+	public void tick(long time) {
+		super.tick(time);
+		
+		// Once it is stuck and can be picked up, an arrow has nothing to do until a player or block change wakes it up
+		if (!dormant && onGround && pickupDelay <= 0 && !isRemoved()) {
+			dormant = true;
+			StuckArrows.add(this);
+			
+			// The pickup check of this tick ran before the arrow got stuck,
+			// and players standing still next to it would never pick it up by moving
+			pickupNearby();
+		}
+	}
+	
 	@Override
 	public void update(long time) {
 		if (onGround) {
@@ -64,34 +87,9 @@ public abstract class AbstractArrow extends CustomEntityProjectile {
 			pickupDelay--;
 		}
 
-        // Pickup
-        if (canBePickedUp(null)) {
-            instance.getEntityTracker().nearbyEntities(position, 5, EntityTracker.Target.PLAYERS,
-                    player -> {
-                        if (!player.canPickupItem()) return;
-
-                        // Do not pickup if not visible
-                        if (!isViewer(player))
-                            return;
-
-                        if (isRemoved() || !canBePickedUp(player))
-                            return;
-
-                        if (player.getBoundingBox().expand(1, 0.5f, 1)
-                                .intersectEntity(player.getPosition(), this)) {
-                            PickupArrowEvent event = new PickupArrowEvent(player, this);
-                            EventDispatcher.callCancellable(event, () -> {
-                                if (pickup(player)) {
-                                    player.sendPacketToViewersAndSelf(new CollectItemPacket(
-                                            getEntityId(), player.getEntityId(), 1
-                                    ));
-                                    remove();
-                                }
-                            });
-                        }
-                    });
-        }
-
+		// Pickup, dormant arrows are picked up by players moving close to them instead
+		if (!dormant) pickupNearby();
+		
 		//TODO water (also for other projectiles?)
 		
 		ticks++;
@@ -100,8 +98,53 @@ public abstract class AbstractArrow extends CustomEntityProjectile {
 		}
 	}
 	
+	private void pickupNearby() {
+		if (isRemoved() || !canBePickedUp(null)) return;
+		
+		instance.getEntityTracker().nearbyEntities(position, 5, EntityTracker.Target.PLAYERS,
+				player -> tryPickup(player, player.getPosition()));
+	}
+	
+	void tryPickup(Player player, Point playerPosition) {
+		if (!player.canPickupItem()) return;
+		
+		// Do not pickup if not visible
+		if (!isViewer(player))
+			return;
+		
+		if (isRemoved() || !canBePickedUp(player))
+			return;
+		
+		if (player.getBoundingBox().expand(1, 0.5f, 1)
+				.intersectEntity(playerPosition, this)) {
+			PickupArrowEvent event = new PickupArrowEvent(player, this);
+			EventDispatcher.callCancellable(event, () -> {
+				if (pickup(player)) {
+					player.sendPacketToViewersAndSelf(new CollectItemPacket(
+							getEntityId(), player.getEntityId(), 1
+					));
+					remove();
+				}
+			});
+		}
+	}
+	
+	@Override
+	protected boolean shouldCheckState() {
+		// Dormant arrows only check whether they are still stuck once every second
+		return !dormant || stuckTime % 20 == 0;
+	}
+	
+	@Override
+	public void remove() {
+		if (dormantInstance != null) StuckArrows.remove(this);
+		super.remove();
+	}
+	
 	@Override
 	public void onUnstuck() {
+		if (dormantInstance != null) StuckArrows.remove(this);
+		
 		ThreadLocalRandom random = ThreadLocalRandom.current();
 		setVelocity(getPosition().direction().mul(
 				random.nextFloat() * 0.2,
@@ -113,7 +156,7 @@ public abstract class AbstractArrow extends CustomEntityProjectile {
 	
 	@Override
 	public void onHit(@NotNull Entity entity) {
-		if (piercingIgnore.contains(entity.getEntityId())) return;
+		if (piercingIgnore != null && piercingIgnore.contains(entity.getEntityId())) return;
 		
 		ThreadLocalRandom random = ThreadLocalRandom.current();
 		
@@ -122,6 +165,7 @@ public abstract class AbstractArrow extends CustomEntityProjectile {
 				movementSpeed * baseDamage, 0.0, 2.147483647E9D));
 		
 		if (getPiercingLevel() > 0) {
+			if (piercingIgnore == null) piercingIgnore = new IntOpenHashSet(getPiercingLevel() + 1);
 			if (piercingIgnore.size() >= getPiercingLevel() + 1) {
 				remove();
 				return;
@@ -213,11 +257,11 @@ public abstract class AbstractArrow extends CustomEntityProjectile {
 		setCritical(false);
 		setPiercingLevel((byte) 0);
 		setSound(SoundEvent.ENTITY_ARROW_HIT);
-		piercingIgnore.clear();
+		piercingIgnore = null;
 	}
 	
 	public boolean canBePickedUp(Player player) {
-		if (!((onGround || hasNoGravity()) && pickupDelay <= 0)) {
+		if (isManaged() || !((onGround || hasNoGravity()) && pickupDelay <= 0)) {
 			return false;
 		}
 		
@@ -2,7 +2,8 @@ package io.github.bloepiloepi.pvp.projectile;
 
 import io.github.bloepiloepi.pvp.events.ProjectileHitEvent.ProjectileBlockHitEvent;
 import io.github.bloepiloepi.pvp.events.ProjectileHitEvent.ProjectileEntityHitEvent;
-import net.minestom.server.coordinate.Point;
+import it.unimi.dsi.fastutil.longs.LongList;
+import net.minestom.server.MinecraftServer;
 import net.minestom.server.coordinate.Pos;
 import net.minestom.server.coordinate.Vec;
 import net.minestom.server.entity.Entity;
@@ -11,24 +12,27 @@ import net.minestom.server.entity.EntityType;
 import net.minestom.server.entity.LivingEntity;
 import net.minestom.server.event.EventDispatcher;
 import net.minestom.server.event.entity.EntityDamageEvent;
-import net.minestom.server.instance.Chunk;
 import net.minestom.server.instance.Instance;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.Collection;
-import java.util.Optional;
 import java.util.function.Predicate;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 /**
  * Stolen from <a href="https://github.com/Minestom/Minestom/pull/496/">Pull Request #496</a> and edited
  */
 public class CustomEntityProjectile extends EntityProjectile {
 
+	private static final double STUCK_CHECK_DISTANCE = 0.06;
+	private static final Predicate<Entity> LIVING_ENTITIES = LivingEntity.class::isInstance;
+	
 	private final @Nullable Predicate<Entity> victimsPredicate;
 	private final boolean hitAnticipation;
+	private @Nullable Vec stuckDirection;
+	private boolean managed, managedNoGravity;
+	
+	// Managed by ProjectilePrefetch
+	@Nullable LongList prefetchedChunks;
 	
 	/**
 	 * Constructs new projectile.
@@ -51,7 +55,7 @@ public class CustomEntityProjectile extends EntityProjectile {
 	 * @param entityType type of the projectile.
 	 */
 	public CustomEntityProjectile(@Nullable Entity shooter, @NotNull EntityType entityType, boolean hitAnticipation) {
-		this(shooter, entityType, LivingEntity.class::isInstance, hitAnticipation);
+		this(shooter, entityType, LIVING_ENTITIES, hitAnticipation);
 	}
 	
 	/**
@@ -78,10 +82,46 @@ public class CustomEntityProjectile extends EntityProjectile {
 	
 	}
 	
+	/**
+	 * Whether this projectile may be moved by the {@link ProjectileManager} of its instance.
+	 * Projectiles which change their own movement while flying should return false.
+	 */
+	protected boolean isManageable() {
+		return true;
+	}
+	
+	/**
+	 * Whether this projectile should check for collisions this tick.
+	 * Projectiles which are stuck and have nothing to do may skip some ticks.
+	 */
+	protected boolean shouldCheckState() {
+		return true;
+	}
+	
+	/**
+	 * @return whether this projectile is currently moved by the {@link ProjectileManager} of its instance
+	 */
+	public boolean isManaged() {
+		return managed;
+	}
+	
 	@Override
 	public void tick(long time) {
+		if (!managed && getAliveTicks() == 0 && !super.onGround && isManageable()) {
+			ProjectileManager manager = ProjectileManager.get(instance);
+			if (manager != null) manager.add(this);
+		}
+		
+		if (managed) {
+			// Movement and collisions are handled by the manager
+			super.tick(time);
+			return;
+		}
+		
 		final Pos posBefore = getPosition();
 		super.tick(time);
+		if (!shouldCheckState()) return;
+		
 		final Pos posNow = getPosition();
 		final State state = hitAnticipation ? guessNextState(posNow) : getState(posBefore, posNow, true);
 		if (state == State.Flying) {
@@ -100,9 +140,25 @@ public class CustomEntityProjectile extends EntityProjectile {
 				return;
 			}
 			super.onGround = false;
+			stuckDirection = null;
 			setNoGravity(false);
 			onUnstuck();
-		} else if (state == State.StuckInBlock) {
+		} else {
+			handleHit(state);
+		}
+	}
+	
+	@Override
+	public void remove() {
+		Instance instance = this.instance;
+		super.remove();
+		
+		// The chunks loaded for this projectile may be unloaded now
+		if (instance != null) ProjectilePrefetch.release(this, instance);
+	}
+	
+	private void handleHit(State state) {
+		if (state == State.StuckInBlock) {
 			if (super.onGround) {
 				return;
 			}
@@ -119,83 +175,126 @@ public class CustomEntityProjectile extends EntityProjectile {
 		}
 	}
 	
+	/**
+	 * Hands the movement of this projectile to a {@link ProjectileManager}.
+	 *
+	 * @return the velocity of this projectile, which is kept by the manager from now on
+	 */
+	Vec startManaged() {
+		Vec velocity = this.velocity;
+		managed = true;
+		managedNoGravity = hasNoGravity();
+		this.velocity = Vec.ZERO;
+		setNoGravity(true);
+		return velocity;
+	}
+	
+	/**
+	 * Takes back the movement of this projectile from its {@link ProjectileManager}.
+	 *
+	 * @param velocity the current velocity, in blocks per second
+	 */
+	void release(Vec velocity) {
+		managed = false;
+		this.velocity = velocity;
+		setNoGravity(managedNoGravity);
+	}
+	
+	/**
+	 * Moves this projectile for a tick of its {@link ProjectileManager}.
+	 * If the projectile hits something, it is released and handles the hit.
+	 *
+	 * The hit is checked the same way as in {@link #tick(long)}.
+	 *
+	 * @param position the position before this tick
+	 * @param movement the movement in this tick, in blocks
+	 * @param velocity the velocity after this tick, in blocks per second
+	 * @return whether the projectile is still flying
+	 */
+	boolean tickManaged(Pos position, Vec movement, Vec velocity, float yaw, float pitch) {
+		Pos posNow = position.add(movement).withView(yaw, pitch);
+		State state;
+		if (hitAnticipation) {
+			refreshPosition(posNow, false);
+			state = guessNextState(posNow, velocity);
+		} else {
+			state = getState(position, posNow, true);
+			if (state != State.StuckInBlock && !isRemoved()) refreshPosition(posNow, false);
+		}
+		if (isRemoved()) return false;
+		if (state == State.Flying) return true;
+		
+		release(velocity);
+		handleHit(state);
+		return false;
+	}
+	
 	private State guessNextState(Pos posNow) {
-		return getState(posNow, posNow.add(getVelocity().mul(0.06)), false);
+		return guessNextState(posNow, getVelocity());
+	}
+	
+	private State guessNextState(Pos posNow, Vec velocity) {
+		return getState(posNow, posNow.add(velocity.mul(0.06)), false);
 	}
 	
 	/**
 	 * Checks whether a projectile is stuck in block / hit an entity.
+	 * Like in vanilla, blocks are found with a ray from the previous to the new position, and entities by sweeping
+	 * the bounding box of the projectile along it. The first block or entity it touches decides the state.
 	 *
 	 * @param pos    position right before current tick.
 	 * @param posNow position after current tick.
 	 * @return current state of the projectile.
 	 */
-	@SuppressWarnings("ConstantConditions")
 	private State getState(Pos pos, Pos posNow, boolean shouldTeleport) {
 		if (pos.samePoint(posNow)) {
-			if (instance.getBlock(posNow).isSolid()) {
-				return State.StuckInBlock;
-			} else {
-				return State.Flying;
-			}
+			return isStuck(posNow) ? State.StuckInBlock : State.Flying;
 		}
 		
 		Instance instance = getInstance();
-		Chunk chunk = null;
-		Collection<Entity> entities = null;
-
-        /*
-          What we're about to do is to discretely jump from the previous position to the new one.
-          For each point we will be checking blocks and entities we're in.
-         */
-		double part = .25D; // half of the bounding box
-		final var dir = posNow.sub(pos).asVec();
-		int parts = (int) Math.ceil(dir.length() / part);
-		final var direction = dir.normalize().mul(part).asPosition();
-		for (int i = 0; i < parts; ++i) {
-			// If we're at last part, we can't just add another direction-vector, because we can exceed end point.
-			if (i == parts - 1) {
-				pos = posNow;
-			} else {
-				pos = pos.add(direction);
-			}
-			if (!instance.isChunkLoaded(pos)) {
-				remove();
-				return State.Flying;
-			}
-			Point blockPos = new Pos(pos.blockX(), pos.blockY(), pos.blockZ());
-			if (instance.getBlock(pos).registry().collisionShape().intersectBox(pos.sub(blockPos), getBoundingBox())) {
-				if (shouldTeleport) teleport(pos);
-				return State.StuckInBlock;
-			}
-			if (victimsPredicate == null) {
-				continue;
-			}
-			Chunk currentChunk = instance.getChunkAt(pos);
-			if (currentChunk != chunk) {
-				chunk = currentChunk;
-				entities = instance.getChunkEntities(chunk)
-						.stream()
-						.filter(victimsPredicate)
-						.collect(Collectors.toSet());
-			}
-			
-			final Pos finalPos = pos;
-			Stream<Entity> victims = entities.stream().filter(entity -> getBoundingBox().intersectEntity(finalPos, entity));
-
+		Vec movement = posNow.sub(pos).asVec();
+		ProjectileCollision.BlockHit blockHit = ProjectileCollision.rayBlocks(instance, pos, movement);
+		double blockTime = blockHit == null ? Double.POSITIVE_INFINITY : blockHit.time();
+		
+		if (victimsPredicate != null) {
             /*
               We won't check collisions with self for first ticks of projectile's life, because it spawns in the
               shooter and will immediately be triggered by him.
              */
-			if (getAliveTicks() < 6) {
-				victims = victims.filter(entity -> entity != getShooter());
-			}
-			Optional<Entity> victim = victims.findAny();
-			if (victim.isPresent()) {
-				return new State.HitEntity(victim.get());
+			Entity ignored = getAliveTicks() < 6 ? getShooter() : null;
+			ProjectileCollision.EntityHit entityHit = ProjectileCollision.sweepEntities(
+					instance, pos, movement, getBoundingBox(),
+					entity -> entity != this && entity != ignored && victimsPredicate.test(entity)
+			);
+			
+			if (entityHit != null && entityHit.time() < blockTime) {
+				return new State.HitEntity(entityHit.entity());
 			}
 		}
-		return State.Flying;
+		
+		if (blockHit == null) return State.Flying;
+		if (blockHit.unloaded()) {
+			remove();
+			return State.Flying;
+		}
+		
+		if (shouldTeleport) {
+			stuckDirection = movement.normalize();
+			teleport(pos.add(movement.mul(blockHit.time())));
+		}
+		return State.StuckInBlock;
+	}
+	
+	/**
+	 * Checks whether a projectile which did not move is in a block.
+	 * Projectiles stuck by {@link #getState(Pos, Pos, boolean)} have their position on the surface of the block they hit,
+	 * so they are stuck as long as moving them a bit further in their direction would intersect a block.
+	 */
+	private boolean isStuck(Pos posNow) {
+		if (instance.getBlock(posNow).isSolid()) return true;
+		
+		return stuckDirection != null && ProjectileCollision.intersectsBlocks(instance,
+				posNow.add(stuckDirection.mul(STUCK_CHECK_DISTANCE)), getBoundingBox());
 	}
 	
 	private interface State {
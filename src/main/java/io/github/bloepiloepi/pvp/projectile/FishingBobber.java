@@ -31,6 +31,11 @@ public class FishingBobber extends CustomEntityProjectile {
 		if (legacy) setGravity(getGravityDragPerTick(), 0.04);
 	}
 	
+	@Override
+	protected boolean isManageable() {
+		return false;
+	}
+	
 	@Override
 	public void tick(long time) {
 		prevPos = getPosition();
@@ -0,0 +1,402 @@
+package io.github.bloepiloepi.pvp.projectile;
+
+import io.github.bloepiloepi.pvp.utils.SpatialUtils;
+import net.minestom.server.collision.BoundingBox;
+import net.minestom.server.collision.Shape;
+import net.minestom.server.coordinate.Point;
+import net.minestom.server.coordinate.Vec;
+import net.minestom.server.entity.Entity;
+import net.minestom.server.instance.Chunk;
+import net.minestom.server.instance.EntityTracker;
+import net.minestom.server.instance.Instance;
+import net.minestom.server.instance.block.Block;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.function.Predicate;
+
+/**
+ * Finds the first block or entity the bounding box of a projectile collides with while it moves along a segment.
+ * <p>
+ * Blocks are found by walking the voxels the moving box enters, in the order it enters them,
+ * so only the blocks along the path are read and the walk stops at the first collision.
+ * Collision times are computed against the bounds of the block collision shapes,
+ * so the returned times are exact instead of being rounded to a step size.
+ * Times are fractions of the movement, from 0 (the start) to 1 (the end).
+ * <p>
+ * Like in vanilla, projectiles hit blocks with a ray from their position, see {@link #rayBlocks(Instance, Point, Vec)},
+ * and entities with their whole bounding box.
+ */
+final class ProjectileCollision {
+	/**
+	 * The largest distance moved between two checks of a shape which does not fill its own bounds, like stairs.
+	 */
+	private static final double SHAPE_STEP = 1.0 / 16;
+	private static final double EPSILON = 1.0E-7;
+	
+	/**
+	 * A box small enough to walk the voxels along a ray, since walks need a box.
+	 */
+	private static final BoundingBox RAY_BOX = new BoundingBox(1.0E-4, 1.0E-4, 1.0E-4);
+	
+	/**
+	 * Walks are reused by every projectile ticked on the same thread, since they are only used during a single call.
+	 */
+	private static final ThreadLocal<BlockWalk> WALKS = ThreadLocal.withInitial(BlockWalk::new);
+	
+	/**
+	 * @param time the time the box first touches the block, or reaches an unloaded chunk
+	 * @param unloaded whether the box reached an unloaded chunk before touching a block
+	 */
+	record BlockHit(double time, boolean unloaded) {}
+	
+	record EntityHit(Entity entity, double time) {}
+	
+	/**
+	 * Finds the first block a moving bounding box collides with.
+	 *
+	 * @param instance the instance to search in
+	 * @param start the position of the box at the start of the movement
+	 * @param movement the movement of the box
+	 * @param box the bounding box
+	 * @return the first hit, or null if the box does not collide with any block
+	 */
+	static @Nullable BlockHit sweepBlocks(Instance instance, Point start, Vec movement, BoundingBox box) {
+		BlockWalk walk = WALKS.get();
+		walk.reset(instance, start, movement, box);
+		try {
+			return walk.run();
+		} finally {
+			walk.clear();
+		}
+	}
+	
+	/**
+	 * Finds the first block a ray collides with, like the ray vanilla projectiles use to find the block they hit.
+	 * A projectile stopped at the returned time has its position on the surface of the block,
+	 * so its bounding box sticks into the block like in vanilla, instead of stopping in front of it.
+	 *
+	 * @param instance the instance to search in
+	 * @param start the start of the ray
+	 * @param movement the direction and length of the ray
+	 * @return the first hit, or null if the ray does not collide with any block
+	 */
+	static @Nullable BlockHit rayBlocks(Instance instance, Point start, Vec movement) {
+		return sweepBlocks(instance, start, movement, RAY_BOX);
+	}
+	
+	/**
+	 * Finds the first entity a moving bounding box collides with, using a single entity tracker query for the whole movement.
+	 *
+	 * @param instance the instance to search in
+	 * @param start the position of the box at the start of the movement
+	 * @param movement the movement of the box
+	 * @param box the bounding box
+	 * @param predicate the entities which can be hit
+	 * @return the first hit, or null if the box does not collide with any entity
+	 */
+	static @Nullable EntityHit sweepEntities(Instance instance, Point start, Vec movement, BoundingBox box,
+	                                         Predicate<Entity> predicate) {
+		double minX = start.x() + box.minX(), minY = start.y() + box.minY(), minZ = start.z() + box.minZ();
+		double maxX = minX + box.width(), maxY = minY + box.height(), maxZ = minZ + box.depth();
+		double length = movement.length();
+		double range = length / 2 + Math.sqrt(box.width() * box.width() + box.height() * box.height()
+				+ box.depth() * box.depth()) / 2 + SpatialUtils.MAX_ENTITY_EXTENT;
+		Point center = start.add(movement.x() / 2, box.minY() + box.height() / 2 + movement.y() / 2, movement.z() / 2);
+		
+		Entity[] hitEntity = new Entity[1];
+		double[] hitTime = {Double.POSITIVE_INFINITY};
+		instance.getEntityTracker().nearbyEntities(center, range, EntityTracker.Target.ENTITIES, entity -> {
+			if (!predicate.test(entity)) return;
+			
+			BoundingBox entityBox = entity.getBoundingBox();
+			Point position = entity.getPosition();
+			double entityMinX = position.x() + entityBox.minX();
+			double entityMinY = position.y() + entityBox.minY();
+			double entityMinZ = position.z() + entityBox.minZ();
+			double time = sweepBox(minX, minY, minZ, maxX, maxY, maxZ, movement,
+					entityMinX, entityMinY, entityMinZ,
+					entityMinX + entityBox.width(), entityMinY + entityBox.height(), entityMinZ + entityBox.depth());
+			if (time < hitTime[0]) {
+				hitTime[0] = time;
+				hitEntity[0] = entity;
+			}
+		});
+		
+		return hitEntity[0] == null ? null : new EntityHit(hitEntity[0], hitTime[0]);
+	}
+	
+	/**
+	 * Checks whether a bounding box intersects the collision shape of any block.
+	 *
+	 * @param instance the instance to check in
+	 * @param position the position of the box
+	 * @param box the bounding box
+	 * @return whether the box intersects a block
+	 */
+	static boolean intersectsBlocks(Instance instance, Point position, BoundingBox box) {
+		double minX = position.x() + box.minX(), minY = position.y() + box.minY(), minZ = position.z() + box.minZ();
+		int maxX = (int) Math.ceil(minX + box.width()) - 1;
+		int maxY = (int) Math.ceil(minY + box.height()) - 1;
+		int maxZ = (int) Math.ceil(minZ + box.depth()) - 1;
+		for (int x = (int) Math.floor(minX); x <= maxX; x++) {
+			for (int y = (int) Math.floor(minY); y <= maxY; y++) {
+				for (int z = (int) Math.floor(minZ); z <= maxZ; z++) {
+					Block block = instance.getBlock(x, y, z);
+					if (block.isAir()) continue;
+					
+					if (block.registry().collisionShape().intersectBox(position.sub(x, y, z), box)) return true;
+				}
+			}
+		}
+		
+		return false;
+	}
+	
+	/**
+	 * Computes when a moving box starts overlapping a static box, using the separating axis for each axis.
+	 *
+	 * @return the time of the first overlap, 0 if the boxes already overlap,
+	 * or {@link Double#POSITIVE_INFINITY} if they do not overlap during the movement
+	 */
+	private static double sweepBox(double minX, double minY, double minZ, double maxX, double maxY, double maxZ, Vec movement,
+	                               double otherMinX, double otherMinY, double otherMinZ,
+	                               double otherMaxX, double otherMaxY, double otherMaxZ) {
+		double[] interval = {0, 1};
+		if (!clipAxis(interval, minX, maxX, movement.x(), otherMinX, otherMaxX)) return Double.POSITIVE_INFINITY;
+		if (!clipAxis(interval, minY, maxY, movement.y(), otherMinY, otherMaxY)) return Double.POSITIVE_INFINITY;
+		if (!clipAxis(interval, minZ, maxZ, movement.z(), otherMinZ, otherMaxZ)) return Double.POSITIVE_INFINITY;
+		
+		return interval[0];
+	}
+	
+	/**
+	 * Narrows the interval {@code [interval[0], interval[1]]} to the times in which the boxes overlap on one axis.
+	 *
+	 * @return whether the interval is not empty
+	 */
+	private static boolean clipAxis(double[] interval, double min, double max, double delta,
+	                                double otherMin, double otherMax) {
+		if (delta == 0) {
+			return min < otherMax && max > otherMin;
+		}
+		
+		double first = (otherMin - max) / delta;
+		double second = (otherMax - min) / delta;
+		interval[0] = Math.max(interval[0], Math.min(first, second));
+		interval[1] = Math.min(interval[1], Math.max(first, second));
+		return interval[0] < interval[1];
+	}
+	
+	/**
+	 * Walks the voxels entered by a moving box in the order they are entered.
+	 * <p>
+	 * On every axis, the leading face of the box crosses the voxel borders at regular times.
+	 * At each crossing, the box enters a new layer of voxels, which spans the voxels the box covers on the other axes.
+	 * The crossings of all axes are visited in order, like a voxel traversal of a ray.
+	 */
+	private static final class BlockWalk {
+		private final double[] interval = new double[2];
+		
+		private Instance instance;
+		private Point start;
+		private Vec movement;
+		private BoundingBox box;
+		private double minX, minY, minZ, maxX, maxY, maxZ;
+		private double length;
+		private int worldMinY, worldMaxY;
+		
+		private double hitTime;
+		
+		private Chunk chunk;
+		private int chunkX, chunkZ;
+		
+		/**
+		 * Prepares this walk for a new movement, resetting everything left from the previous one.
+		 */
+		private void reset(Instance instance, Point start, Vec movement, BoundingBox box) {
+			this.instance = instance;
+			this.start = start;
+			this.movement = movement;
+			this.box = box;
+			this.minX = start.x() + box.minX();
+			this.minY = start.y() + box.minY();
+			this.minZ = start.z() + box.minZ();
+			this.maxX = minX + box.width();
+			this.maxY = minY + box.height();
+			this.maxZ = minZ + box.depth();
+			this.length = movement.length();
+			this.worldMinY = instance.getDimensionType().getMinY();
+			this.worldMaxY = worldMinY + instance.getDimensionType().getHeight() - 1;
+			this.hitTime = Double.POSITIVE_INFINITY;
+			this.chunk = null;
+			this.chunkX = Integer.MIN_VALUE;
+			this.chunkZ = Integer.MIN_VALUE;
+		}
+		
+		/**
+		 * Releases the references to the instance and its chunks, so a walk does not keep them loaded.
+		 */
+		private void clear() {
+			instance = null;
+			start = null;
+			movement = null;
+			box = null;
+			chunk = null;
+		}
+		
+		private @Nullable BlockHit run() {
+			double dx = movement.x(), dy = movement.y(), dz = movement.z();
+			
+			// The next voxel border crossed by the leading face on each axis, and the time it is crossed
+			int borderX = dx > 0 ? (int) Math.ceil(maxX) : (int) Math.floor(minX);
+			int borderY = dy > 0 ? (int) Math.ceil(maxY) : (int) Math.floor(minY);
+			int borderZ = dz > 0 ? (int) Math.ceil(maxZ) : (int) Math.floor(minZ);
+			double nextX = dx == 0 ? Double.POSITIVE_INFINITY : (borderX - (dx > 0 ? maxX : minX)) / dx;
+			double nextY = dy == 0 ? Double.POSITIVE_INFINITY : (borderY - (dy > 0 ? maxY : minY)) / dy;
+			double nextZ = dz == 0 ? Double.POSITIVE_INFINITY : (borderZ - (dz > 0 ? maxZ : minZ)) / dz;
+			double deltaX = dx == 0 ? Double.POSITIVE_INFINITY : Math.abs(1 / dx);
+			double deltaY = dy == 0 ? Double.POSITIVE_INFINITY : Math.abs(1 / dy);
+			double deltaZ = dz == 0 ? Double.POSITIVE_INFINITY : Math.abs(1 / dz);
+			
+			// The voxels the box is already in
+			if (!checkLayer(
+					(int) Math.floor(minX), (int) Math.ceil(maxX) - 1,
+					(int) Math.floor(minY), (int) Math.ceil(maxY) - 1,
+					(int) Math.floor(minZ), (int) Math.ceil(maxZ) - 1)) {
+				return new BlockHit(0, true);
+			}
+			
+			while (true) {
+				double time = Math.min(nextX, Math.min(nextY, nextZ));
+				if (time > 1 || time >= hitTime) break;
+				
+				// Voxels on the other axes are included when the box only touches them,
+				// so voxels entered on several axes at the same time are not skipped
+				boolean loaded;
+				if (time == nextX) {
+					int x = dx > 0 ? borderX : borderX - 1;
+					loaded = checkLayer(x, x,
+							lower(minY + dy * time), upper(maxY + dy * time),
+							lower(minZ + dz * time), upper(maxZ + dz * time));
+					borderX += dx > 0 ? 1 : -1;
+					nextX += deltaX;
+				} else if (time == nextY) {
+					int y = dy > 0 ? borderY : borderY - 1;
+					loaded = checkLayer(
+							lower(minX + dx * time), upper(maxX + dx * time),
+							y, y,
+							lower(minZ + dz * time), upper(maxZ + dz * time));
+					borderY += dy > 0 ? 1 : -1;
+					nextY += deltaY;
+				} else {
+					int z = dz > 0 ? borderZ : borderZ - 1;
+					loaded = checkLayer(
+							lower(minX + dx * time), upper(maxX + dx * time),
+							lower(minY + dy * time), upper(maxY + dy * time),
+							z, z);
+					borderZ += dz > 0 ? 1 : -1;
+					nextZ += deltaZ;
+				}
+				
+				if (!loaded && time < hitTime) return new BlockHit(time, true);
+			}
+			
+			return hitTime == Double.POSITIVE_INFINITY ? null : new BlockHit(hitTime, false);
+		}
+		
+		private static int lower(double min) {
+			return (int) Math.floor(min - EPSILON);
+		}
+		
+		private static int upper(double max) {
+			return (int) Math.floor(max + EPSILON);
+		}
+		
+		/**
+		 * Checks the collision of all voxels in a layer entered by the box.
+		 *
+		 * @return false if a voxel is in an unloaded chunk
+		 */
+		private boolean checkLayer(int minX, int maxX, int minY, int maxY, int minZ, int maxZ) {
+			minY = Math.max(minY, worldMinY);
+			maxY = Math.min(maxY, worldMaxY);
+			for (int x = minX; x <= maxX; x++) {
+				for (int z = minZ; z <= maxZ; z++) {
+					if (x >> 4 != chunkX || z >> 4 != chunkZ) {
+						chunkX = x >> 4;
+						chunkZ = z >> 4;
+						chunk = instance.getChunk(chunkX, chunkZ);
+					}
+					if (chunk == null || !chunk.isLoaded()) return false;
+					
+					for (int y = minY; y <= maxY; y++) {
+						Block block = chunk.getBlock(x, y, z);
+						if (block.isAir()) continue;
+						
+						double hit = getContactTime(block.registry().collisionShape(), x, y, z);
+						if (hit < hitTime) hitTime = hit;
+					}
+				}
+			}
+			
+			return true;
+		}
+		
+		/**
+		 * Computes the first time the box touches a block shape.
+		 * The time is exact for shapes which fill their bounds, and otherwise found by
+		 * stepping through the shape bounds and refining the first step which intersects.
+		 */
+		private double getContactTime(Shape shape, int x, int y, int z) {
+			Point shapeStart = shape.relativeStart();
+			Point shapeEnd = shape.relativeEnd();
+			if (shapeStart.x() >= shapeEnd.x() || shapeStart.y() >= shapeEnd.y() || shapeStart.z() >= shapeEnd.z()) {
+				return Double.POSITIVE_INFINITY;
+			}
+			
+			interval[0] = 0;
+			interval[1] = 1;
+			if (!clipAxis(interval, minX, maxX, movement.x(), x + shapeStart.x(), x + shapeEnd.x())
+					|| !clipAxis(interval, minY, maxY, movement.y(), y + shapeStart.y(), y + shapeEnd.y())
+					|| !clipAxis(interval, minZ, maxZ, movement.z(), z + shapeStart.z(), z + shapeEnd.z())) {
+				return Double.POSITIVE_INFINITY;
+			}
+			
+			double enter = Math.max(interval[0], 0);
+			double exit = interval[1];
+			if (enter >= hitTime) return Double.POSITIVE_INFINITY;
+			
+			// Shapes which fill their bounds intersect as soon as the bounds are entered
+			double nudge = length == 0 ? 0 : EPSILON / length;
+			if (intersects(shape, x, y, z, Math.min(enter + nudge, exit))) return enter;
+			
+			double step = length == 0 ? 1 : SHAPE_STEP / length;
+			double previous = enter;
+			for (double time = enter + step; time < exit + step; time += step) {
+				double current = Math.min(time, exit);
+				if (!intersects(shape, x, y, z, current)) {
+					previous = current;
+					continue;
+				}
+				
+				// Refine the time between the last step outside of the shape and this one
+				for (int i = 0; i < 16; i++) {
+					double middle = (previous + current) / 2;
+					if (intersects(shape, x, y, z, middle)) {
+						current = middle;
+					} else {
+						previous = middle;
+					}
+				}
+				
+				return current;
+			}
+			
+			return Double.POSITIVE_INFINITY;
+		}
+		
+		private boolean intersects(Shape shape, int x, int y, int z, double time) {
+			return shape.intersectBox(start.add(movement.mul(time)).sub(x, y, z), box);
+		}
+	}
+}
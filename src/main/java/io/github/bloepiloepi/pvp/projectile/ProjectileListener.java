@@ -3,8 +3,10 @@ package io.github.bloepiloepi.pvp.projectile;
 import io.github.bloepiloepi.pvp.config.ProjectileConfig;
 import io.github.bloepiloepi.pvp.config.PvPConfig;
 import io.github.bloepiloepi.pvp.enchantment.EnchantmentUtils;
+import io.github.bloepiloepi.pvp.entity.CooldownManager;
 import io.github.bloepiloepi.pvp.entity.EntityUtils;
-import io.github.bloepiloepi.pvp.entity.Tracker;
+import io.github.bloepiloepi.pvp.entity.PvpState;
+import io.github.bloepiloepi.pvp.utils.CombatClock;
 import io.github.bloepiloepi.pvp.utils.ItemUtils;
 import io.github.bloepiloepi.pvp.utils.SoundManager;
 import it.unimi.dsi.fastutil.Pair;
@@ -20,7 +22,9 @@ import net.minestom.server.event.EventListener;
 import net.minestom.server.event.EventNode;
 import net.minestom.server.event.entity.EntityShootEvent;
 import net.minestom.server.event.item.ItemUpdateStateEvent;
+import net.minestom.server.event.player.PlayerBlockBreakEvent;
 import net.minestom.server.event.player.PlayerItemAnimationEvent;
+import net.minestom.server.event.player.PlayerMoveEvent;
 import net.minestom.server.event.player.PlayerTickEvent;
 import net.minestom.server.event.player.PlayerUseItemEvent;
 import net.minestom.server.event.trait.PlayerInstanceEvent;
@@ -35,6 +39,7 @@ import org.jetbrains.annotations.Nullable;
 
 import java.util.Objects;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
 
 public class ProjectileListener {
 	private static final Tag<Byte> START_SOUND_PLAYED = Tag.Byte("StartSoundPlayed");
@@ -128,7 +133,7 @@ public class ProjectileListener {
 			Player player = event.getPlayer();
 			ItemStack stack = event.getItemStack();
 			
-			if (Tracker.hasCooldown(player, stack.material())) {
+			if (CooldownManager.hasCooldown(player, stack.material())) {
 				event.setCancelled(true);
 				return;
 			}
@@ -160,7 +165,7 @@ public class ProjectileListener {
 					0.5f, 0.4f / (random.nextFloat() * 0.4f + 0.8f));
 			
 			if (enderpearl) {
-				Tracker.setCooldown(player, Material.ENDER_PEARL, 20);
+				CooldownManager.setCooldown(player, Material.ENDER_PEARL, 20);
 			}
 			
 			Pos position = player.getPosition().add(0D, player.getEyeHeight(), 0D);
@@ -175,6 +180,10 @@ public class ProjectileListener {
 			projectile.setVelocity(projectile.getVelocity().add(playerVel.x(),
 					player.isOnGround() ? 0.0D : playerVel.y(), playerVel.z()));
 			
+			if (enderpearl && config.isChunkPrefetch()) {
+				ProjectilePrefetch.prefetch(projectile, config.getChunkPrefetchDistance());
+			}
+			
 			if (!player.isCreative()) {
 				player.setItemInHand(event.getHand(), stack.withAmount(stack.amount() - 1));
 			}
@@ -190,7 +199,8 @@ public class ProjectileListener {
 				event.setCancelled(true);
 				
 				stack = performCrossbowShooting(event.getPlayer(), event.getHand(), stack,
-						getCrossbowPower(stack), 1.0, config.isLegacy());
+						getCrossbowPower(stack), 1.0, config.isLegacy(), config.isChunkPrefetch() ?
+								arrow -> ProjectilePrefetch.prefetch(arrow, config.getChunkPrefetchDistance()) : null);
 				event.getPlayer().setItemInHand(event.getHand(), setCrossbowCharged(stack, false));
 			} else {
 				if (EntityUtils.getProjectile(event.getPlayer(),
@@ -202,7 +212,7 @@ public class ProjectileListener {
 							.withTag(MID_LOAD_SOUND_PLAYED, (byte) 0);
 					event.getPlayer().setItemInHand(event.getHand(), newStack);
 					
-					Tracker.itemUseHand.put(event.getPlayer().getUuid(), event.getHand());
+					PvpState.getOrCreate(event.getPlayer()).setItemUseHand(event.getHand());
 				}
 			}
 		}).filter(event -> event.getItemStack().material() == Material.CROSSBOW).build());
@@ -224,7 +234,7 @@ public class ProjectileListener {
 				
 				int quickCharge = EnchantmentUtils.getLevel(Enchantment.QUICK_CHARGE, stack);
 				
-				long useDuration = System.currentTimeMillis() - Tracker.itemUseStartTime.get(player.getUuid());
+				long useDuration = CombatClock.get().getMillis() - PvpState.getOrCreate(player).getItemUseStartTime();
 				long useTicks = useDuration / MinecraftServer.TICK_MS;
 				double progress = (getCrossbowUseDuration(stack) - useTicks) / (double) getCrossbowChargeDuration(stack);
 				
@@ -266,7 +276,7 @@ public class ProjectileListener {
 				projectileSlot = -1;
 			}
 			
-			long useDuration = System.currentTimeMillis() - Tracker.itemUseStartTime.get(player.getUuid());
+			long useDuration = CombatClock.get().getMillis() - PvpState.getOrCreate(player).getItemUseStartTime();
 			double power = getBowPower(useDuration);
 			if (power < 0.1) return;
 			
@@ -315,6 +325,10 @@ public class ProjectileListener {
 			arrow.setVelocity(arrow.getVelocity().add(playerVel.x(),
 					player.isOnGround() ? 0.0D : playerVel.y(), playerVel.z()));
 			
+			if (config.isChunkPrefetch()) {
+				ProjectilePrefetch.prefetch(arrow, config.getChunkPrefetchDistance());
+			}
+			
 			ThreadLocalRandom random = ThreadLocalRandom.current();
 			SoundManager.sendToAround(player, SoundEvent.ENTITY_ARROW_SHOOT, Sound.Source.PLAYER,
 					1.0f, 1.0f / (random.nextFloat() * 0.4f + 1.2f) + (float) power * 0.5f);
@@ -332,7 +346,7 @@ public class ProjectileListener {
 			int quickCharge = EnchantmentUtils.getLevel(Enchantment.QUICK_CHARGE, stack);
 			
 			if (quickCharge < 6) {
-				long useDuration = System.currentTimeMillis() - Tracker.itemUseStartTime.get(player.getUuid());
+				long useDuration = CombatClock.get().getMillis() - PvpState.getOrCreate(player).getItemUseStartTime();
 				double power = getCrossbowPowerForTime(useDuration, stack);
 				if (!(power >= 1.0F) || stack.meta(CrossbowMeta.class).isCharged())
 					return;
@@ -349,6 +363,12 @@ public class ProjectileListener {
 			player.setItemInHand(event.getHand(), stack);
 		}).filter(event -> event.getItemStack().material() == Material.CROSSBOW).build());
 		
+		// Dormant stuck arrows
+		node.addListener(PlayerMoveEvent.class, event ->
+				StuckArrows.onPlayerMove(event.getPlayer(), event.getNewPosition()));
+		node.addListener(PlayerBlockBreakEvent.class, event ->
+				StuckArrows.onBlockChange(event.getInstance(), event.getBlockPosition()));
+		
 		return node;
 	}
 	
@@ -453,10 +473,22 @@ public class ProjectileListener {
 	
 	public static ItemStack performCrossbowShooting(Player player, Player.Hand hand, ItemStack stack,
 	                                           double power, double spread, boolean legacy) {
+		return performCrossbowShooting(player, hand, stack, power, spread, legacy, null);
+	}
+	
+	/**
+	 * Shoots the projectiles a crossbow is charged with.
+	 *
+	 * @param onShoot called for every arrow after it is shot, may be null
+	 * @return the crossbow without its projectiles
+	 */
+	public static ItemStack performCrossbowShooting(Player player, Player.Hand hand, ItemStack stack,
+	                                           double power, double spread, boolean legacy,
+	                                           @Nullable Consumer<AbstractArrow> onShoot) {
 		CrossbowMeta meta = stack.meta(CrossbowMeta.class);
 		ItemStack projectile = meta.getProjectiles().get(0);
 		if (!projectile.isAir()) {
-			shootCrossbowProjectile(player, hand, stack, projectile, 1.0F, power, spread, 0.0F, legacy);
+			shot(shootCrossbowProjectile(player, hand, stack, projectile, 1.0F, power, spread, 0.0F, legacy), onShoot);
 		}
 		
 		if (meta.getProjectiles().size() > 2) {
@@ -467,22 +499,29 @@ public class ProjectileListener {
 			
 			projectile = meta.getProjectiles().get(1);
 			if (!projectile.isAir()) {
-				shootCrossbowProjectile(player, hand, stack, projectile, firstPitch, power, spread, -10.0F, legacy);
+				shot(shootCrossbowProjectile(player, hand, stack, projectile, firstPitch, power, spread, -10.0F, legacy), onShoot);
 			}
 			projectile = meta.getProjectiles().get(2);
 			if (!projectile.isAir()) {
-				shootCrossbowProjectile(player, hand, stack, projectile, secondPitch, power, spread, 10.0F, legacy);
+				shot(shootCrossbowProjectile(player, hand, stack, projectile, secondPitch, power, spread, 10.0F, legacy), onShoot);
 			}
 		}
 		
 		return setCrossbowProjectile(stack, ItemStack.AIR);
 	}
 	
-	public static void shootCrossbowProjectile(Player player, Player.Hand hand, ItemStack crossbowStack,
+	private static void shot(@Nullable AbstractArrow arrow, @Nullable Consumer<AbstractArrow> onShoot) {
+		if (arrow != null && onShoot != null) onShoot.accept(arrow);
+	}
+	
+	/**
+	 * @return the arrow which was shot, or null if the projectile is not an arrow
+	 */
+	public static @Nullable AbstractArrow shootCrossbowProjectile(Player player, Player.Hand hand, ItemStack crossbowStack,
 	                                           ItemStack projectile, float soundPitch,
 	                                           double power, double spread, float yaw, boolean legacy) {
 		boolean firework = projectile.material() == Material.FIREWORK_ROCKET;
-		if (firework) return; //TODO firework
+		if (firework) return null; //TODO firework
 		
 		AbstractArrow arrow = getCrossbowArrow(player, crossbowStack, projectile, legacy);
 		if (player.isCreative() || yaw != 0.0) {
@@ -503,6 +542,8 @@ public class ProjectileListener {
 				EquipmentSlot.MAIN_HAND : EquipmentSlot.OFF_HAND, firework ? 3 : 1);
 		
 		SoundManager.sendToAround(player, SoundEvent.ITEM_CROSSBOW_SHOOT, Sound.Source.PLAYER, 1.0F, soundPitch);
+		
+		return arrow;
 	}
 	
 	public static AbstractArrow getCrossbowArrow(Player player, ItemStack crossbowStack, ItemStack projectile, boolean legacy) {
@@ -0,0 +1,210 @@
+package io.github.bloepiloepi.pvp.projectile;
+
+import net.minestom.server.MinecraftServer;
+import net.minestom.server.coordinate.Pos;
+import net.minestom.server.coordinate.Vec;
+import net.minestom.server.instance.Instance;
+import net.minestom.server.timer.Task;
+import net.minestom.server.utils.time.TimeUnit;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Applies the drag and gravity of the flying projectiles of an instance in a single pass per tick.
+ * <p>
+ * Managers are opt-in per instance, see {@link #enable(Instance)}.
+ * Projectiles spawned in an instance with a manager are taken over on their first tick:
+ * their positions and velocities are kept in arrays, and their movement is computed in a single loop
+ * instead of by their own physics. Only the movement is batched: every projectile still runs its own entity tick,
+ * and checks what it hits along its movement by itself.
+ * Every tick moves them exactly like Minestom moves an entity without physics in the air, see {@link #AIR_DRAG}.
+ * The entities only receive their new position, which Minestom sends to the viewers of each chunk grouped with other packets.
+ * When a projectile hits a block or an entity, it is released with its velocity and handles the hit like an unmanaged projectile.
+ * <p>
+ * While a projectile is managed, the velocity of the entity is zero and it has no gravity.
+ * Projectiles which change their own movement while flying, like fishing bobbers, are never managed.
+ */
+public class ProjectileManager {
+	private static final Map<UUID, ProjectileManager> MANAGERS = new ConcurrentHashMap<>();
+	
+	/**
+	 * The horizontal drag Minestom applies to entities which are not living in the air.
+	 * Minestom applies it to the movement of the tick, and then subtracts gravity from the vertical movement
+	 * before applying the gravity drag, which is different from vanilla. The velocity is converted between
+	 * blocks per second and blocks per tick every tick, so it is kept in blocks per second to get the same rounding.
+	 */
+	static final double AIR_DRAG = 0.98;
+	
+	private final Instance instance;
+	private final Task task;
+	
+	private CustomEntityProjectile[] projectiles = new CustomEntityProjectile[64];
+	private double[] x = new double[64], y = new double[64], z = new double[64];
+	// Velocities are in blocks per second, like the velocity of an entity
+	private double[] velocityX = new double[64], velocityY = new double[64], velocityZ = new double[64];
+	private double[] gravityDrag = new double[64], gravity = new double[64];
+	private int size;
+	
+	private ProjectileManager(Instance instance) {
+		this.instance = instance;
+		this.task = MinecraftServer.getSchedulerManager()
+				.buildTask(this::tick)
+				.repeat(1, TimeUnit.SERVER_TICK).schedule();
+	}
+	
+	/**
+	 * Starts managing the projectiles spawned in an instance.
+	 *
+	 * @param instance the instance
+	 * @return the manager of the instance, which is the existing one if it was already enabled
+	 */
+	public static @NotNull ProjectileManager enable(@NotNull Instance instance) {
+		return MANAGERS.computeIfAbsent(instance.getUniqueId(), uuid -> new ProjectileManager(instance));
+	}
+	
+	/**
+	 * Stops managing the projectiles of an instance, and releases the projectiles which are still flying.
+	 * This should be called when the instance is unregistered.
+	 *
+	 * @param instance the instance
+	 */
+	public static void disable(@NotNull Instance instance) {
+		ProjectileManager manager = MANAGERS.remove(instance.getUniqueId());
+		if (manager != null) manager.close();
+	}
+	
+	public static @Nullable ProjectileManager get(@NotNull Instance instance) {
+		return MANAGERS.get(instance.getUniqueId());
+	}
+	
+	/**
+	 * @return the amount of projectiles which are currently managed
+	 */
+	public synchronized int size() {
+		return size;
+	}
+	
+	/**
+	 * Takes over the movement of a projectile.
+	 */
+	synchronized void add(CustomEntityProjectile projectile) {
+		if (size == projectiles.length) grow();
+		
+		Pos position = projectile.getPosition();
+		// Without gravity, the vertical velocity is left as it is
+		boolean noGravity = projectile.hasNoGravity();
+		Vec velocity = projectile.startManaged();
+		
+		projectiles[size] = projectile;
+		x[size] = position.x();
+		y[size] = position.y();
+		z[size] = position.z();
+		velocityX[size] = velocity.x();
+		velocityY[size] = velocity.y();
+		velocityZ[size] = velocity.z();
+		gravityDrag[size] = noGravity ? 1 : 1 - projectile.getGravityDragPerTick();
+		gravity[size] = noGravity ? 0 : projectile.getGravityAcceleration();
+		size++;
+	}
+	
+	private synchronized void tick() {
+		double tps = MinecraftServer.TICK_PER_SECOND;
+		
+		// Movement, collisions and position updates, the projectiles which hit something are released
+		for (int i = 0; i < size; i++) {
+			CustomEntityProjectile projectile = projectiles[i];
+			if (projectile.isRemoved() || projectile.getInstance() != instance || !projectile.isManaged()) {
+				if (!projectile.isRemoved() && projectile.isManaged()) release(i);
+				removeAt(i--);
+				continue;
+			}
+			
+			double dx = velocityX[i] / tps, dy = velocityY[i] / tps, dz = velocityZ[i] / tps;
+			
+			// Drag and gravity, in the same order as Minestom
+			double newX = epsilon(dx * AIR_DRAG * tps);
+			double newY = epsilon((dy - gravity[i]) * gravityDrag[i] * tps);
+			double newZ = epsilon(dz * AIR_DRAG * tps);
+			velocityX[i] = newX;
+			velocityY[i] = newY;
+			velocityZ[i] = newZ;
+			
+			float yaw = (float) Math.toDegrees(Math.atan2(newX, newZ));
+			float pitch = (float) Math.toDegrees(Math.atan2(newY, Math.sqrt(newX * newX + newZ * newZ)));
+			if (!projectile.tickManaged(new Pos(x[i], y[i], z[i]), new Vec(dx, dy, dz),
+					new Vec(newX, newY, newZ), yaw, pitch)) {
+				removeAt(i--);
+				continue;
+			}
+			
+			x[i] += dx;
+			y[i] += dy;
+			z[i] += dz;
+		}
+	}
+	
+	/**
+	 * Stops velocities from decreasing infinitely, like {@link Vec.Operator#EPSILON}.
+	 */
+	static double epsilon(double velocity) {
+		return Math.abs(velocity) < Vec.EPSILON ? 0 : velocity;
+	}
+	
+	private synchronized void close() {
+		task.cancel();
+		
+		for (int i = 0; i < size; i++) {
+			CustomEntityProjectile projectile = projectiles[i];
+			if (projectile.isRemoved() || !projectile.isManaged()) continue;
+			release(i);
+		}
+		
+		Arrays.fill(projectiles, 0, size, null);
+		size = 0;
+	}
+	
+	/**
+	 * Hands a projectile which is still flying back to its entity.
+	 */
+	private void release(int index) {
+		Vec velocity = new Vec(velocityX[index], velocityY[index], velocityZ[index]);
+		projectiles[index].release(velocity);
+		// Also sends the velocity, so clients move the projectile by themselves again
+		projectiles[index].setVelocity(velocity);
+	}
+	
+	/**
+	 * Removes a projectile by moving the last projectile into its place.
+	 */
+	private void removeAt(int index) {
+		int last = --size;
+		projectiles[index] = projectiles[last];
+		x[index] = x[last];
+		y[index] = y[last];
+		z[index] = z[last];
+		velocityX[index] = velocityX[last];
+		velocityY[index] = velocityY[last];
+		velocityZ[index] = velocityZ[last];
+		gravityDrag[index] = gravityDrag[last];
+		gravity[index] = gravity[last];
+		projectiles[last] = null;
+	}
+	
+	private void grow() {
+		int capacity = projectiles.length * 2;
+		projectiles = Arrays.copyOf(projectiles, capacity);
+		x = Arrays.copyOf(x, capacity);
+		y = Arrays.copyOf(y, capacity);
+		z = Arrays.copyOf(z, capacity);
+		velocityX = Arrays.copyOf(velocityX, capacity);
+		velocityY = Arrays.copyOf(velocityY, capacity);
+		velocityZ = Arrays.copyOf(velocityZ, capacity);
+		gravityDrag = Arrays.copyOf(gravityDrag, capacity);
+		gravity = Arrays.copyOf(gravity, capacity);
+	}
+}
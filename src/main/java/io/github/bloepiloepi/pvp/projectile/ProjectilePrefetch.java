@@ -0,0 +1,176 @@
+package io.github.bloepiloepi.pvp.projectile;
+
+import it.unimi.dsi.fastutil.longs.Long2IntMap;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongList;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import net.minestom.server.MinecraftServer;
+import net.minestom.server.coordinate.Pos;
+import net.minestom.server.coordinate.Vec;
+import net.minestom.server.instance.Chunk;
+import net.minestom.server.instance.Instance;
+import net.minestom.server.utils.time.TimeUnit;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Loads the chunks a projectile will fly through before it reaches them.
+ * <p>
+ * The path is predicted like {@link ProjectileManager} moves projectiles, from the velocity, drag and gravity
+ * of the projectile, without collisions. Chunks on the path which are not loaded yet are loaded asynchronously,
+ * so the projectile is not removed when it reaches them and an ender pearl lands in a loaded chunk.
+ * <p>
+ * The chunks loaded this way are kept track of per projectile, and are used by every projectile whose path crosses them.
+ * A chunk which is still loading is also used by its own load, so it is not forgotten before it is loaded.
+ * Once no projectile uses a chunk anymore and it is loaded, it is unloaded if it has no viewers and no entities.
+ */
+final class ProjectilePrefetch {
+	/**
+	 * The amount of projectiles using each chunk loaded by a prefetch, per instance.
+	 * Instances are removed once none of their chunks is used anymore.
+	 */
+	private static final Map<UUID, Long2IntMap> USES = new ConcurrentHashMap<>();
+	
+	/**
+	 * The amount of ticks to wait after a projectile is removed before unloading its chunks,
+	 * so the owner of an ender pearl has been teleported into its chunk by then.
+	 */
+	private static final int UNLOAD_DELAY = 20;
+	
+	/**
+	 * The maximum amount of ticks which are predicted, for projectiles which barely move horizontally.
+	 */
+	private static final int MAX_TICKS = 200;
+	
+	/**
+	 * Starts loading the chunks on the path of a projectile which was just launched.
+	 *
+	 * @param projectile the projectile, which should already be in an instance and have its velocity
+	 * @param distance the horizontal distance along the path in which chunks are loaded
+	 */
+	static void prefetch(CustomEntityProjectile projectile, double distance) {
+		Instance instance = projectile.getInstance();
+		if (instance == null || distance <= 0) return;
+		
+		Pos start = projectile.getPosition();
+		Vec velocity = projectile.getVelocity();
+		double tps = MinecraftServer.TICK_PER_SECOND;
+		double x = start.x(), y = start.y(), z = start.z();
+		double velocityX = velocity.x(), velocityY = velocity.y(), velocityZ = velocity.z();
+		boolean noGravity = projectile.hasNoGravity();
+		double gravityDrag = noGravity ? 1 : 1 - projectile.getGravityDragPerTick();
+		double gravity = noGravity ? 0 : projectile.getGravityAcceleration();
+		double distanceSquared = distance * distance;
+		int minY = instance.getDimensionType().getMinY();
+		
+		LongSet requested = new LongOpenHashSet();
+		for (int tick = 0; tick < MAX_TICKS; tick++) {
+			double dx = velocityX / tps, dy = velocityY / tps, dz = velocityZ / tps;
+			double nextX = x + dx, nextZ = z + dz;
+			
+			// A tick of movement can cross a chunk border on both axes, so all chunks around the segment are loaded
+			int minChunkX = (int) Math.floor(Math.min(x, nextX)) >> 4;
+			int maxChunkX = (int) Math.floor(Math.max(x, nextX)) >> 4;
+			int minChunkZ = (int) Math.floor(Math.min(z, nextZ)) >> 4;
+			int maxChunkZ = (int) Math.floor(Math.max(z, nextZ)) >> 4;
+			for (int chunkX = minChunkX; chunkX <= maxChunkX; chunkX++) {
+				for (int chunkZ = minChunkZ; chunkZ <= maxChunkZ; chunkZ++) {
+					requested.add((long) chunkX << 32 | (chunkZ & 0xFFFFFFFFL));
+				}
+			}
+			
+			x = nextX;
+			y += dy;
+			z = nextZ;
+			velocityX = ProjectileManager.epsilon(dx * ProjectileManager.AIR_DRAG * tps);
+			velocityY = ProjectileManager.epsilon((dy - gravity) * gravityDrag * tps);
+			velocityZ = ProjectileManager.epsilon(dz * ProjectileManager.AIR_DRAG * tps);
+			
+			double distanceX = x - start.x(), distanceZ = z - start.z();
+			if (y < minY || distanceX * distanceX + distanceZ * distanceZ > distanceSquared) break;
+		}
+		
+		// Chunks which were loaded in another way are left alone
+		LongList used = new LongArrayList();
+		LongList unloaded = new LongArrayList();
+		USES.compute(instance.getUniqueId(), (uuid, uses) -> {
+			if (uses == null) uses = new Long2IntOpenHashMap();
+			LongIterator iterator = requested.iterator();
+			while (iterator.hasNext()) {
+				long key = iterator.nextLong();
+				if (uses.containsKey(key)) {
+					uses.put(key, uses.get(key) + 1);
+				} else if (instance.getChunk((int) (key >> 32), (int) key) == null) {
+					// Used by the projectile and by the load
+					uses.put(key, 2);
+					unloaded.add(key);
+				} else {
+					continue;
+				}
+				used.add(key);
+			}
+			
+			return uses.isEmpty() ? null : uses;
+		});
+		
+		for (int i = 0; i < unloaded.size(); i++) {
+			long key = unloaded.getLong(i);
+			instance.loadChunk((int) (key >> 32), (int) key).whenComplete((chunk, throwable) ->
+					instance.scheduleNextTick(ignored -> unuse(instance, LongArrayList.wrap(new long[] {key}))));
+		}
+		if (!used.isEmpty()) projectile.prefetchedChunks = used;
+	}
+	
+	/**
+	 * Stops using the chunks which were loaded for a projectile, called when it is removed.
+	 * The chunks no other projectile uses are unloaded a second later, if they have no viewers and no entities.
+	 *
+	 * @param projectile the projectile
+	 * @param instance the instance the projectile was in
+	 */
+	static void release(CustomEntityProjectile projectile, Instance instance) {
+		LongList chunks = projectile.prefetchedChunks;
+		if (chunks == null) return;
+		projectile.prefetchedChunks = null;
+		
+		MinecraftServer.getSchedulerManager().buildTask(() -> unuse(instance, chunks))
+				.delay(UNLOAD_DELAY, TimeUnit.SERVER_TICK).schedule();
+	}
+	
+	/**
+	 * Stops using chunks once, and unloads the chunks which are no longer used if they have no viewers and no entities.
+	 */
+	private static void unuse(Instance instance, LongList chunks) {
+		LongList unused = new LongArrayList();
+		USES.computeIfPresent(instance.getUniqueId(), (uuid, uses) -> {
+			for (int i = 0; i < chunks.size(); i++) {
+				long key = chunks.getLong(i);
+				int count = uses.get(key) - 1;
+				if (count > 0) {
+					uses.put(key, count);
+				} else {
+					uses.remove(key);
+					unused.add(key);
+				}
+			}
+			
+			return uses.isEmpty() ? null : uses;
+		});
+		
+		for (int i = 0; i < unused.size(); i++) {
+			long key = unused.getLong(i);
+			
+			// Chunks are only unused once their load completed, but they may have been unloaded in another way
+			Chunk chunk = instance.getChunk((int) (key >> 32), (int) key);
+			if (chunk == null || !chunk.isLoaded()) continue;
+			if (!chunk.getViewers().isEmpty() || !instance.getChunkEntities(chunk).isEmpty()) continue;
+			
+			instance.unloadChunk(chunk);
+		}
+	}
+}
@@ -0,0 +1,297 @@
+package io.github.bloepiloepi.pvp.projectile;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectLinkedOpenHashSet;
+import net.minestom.server.coordinate.Point;
+import net.minestom.server.entity.Player;
+import net.minestom.server.instance.Instance;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps track of the dormant stuck arrows of an instance.
+ * <p>
+ * Arrows stuck in a block become dormant once they can be picked up: they stop checking for players and blocks every tick.
+ * Instead, players moving near them pick them up, and breaking a block next to them wakes them up so they can fall.
+ * Dormant arrows still check whether they are stuck once every second, for blocks changed in other ways.
+ * Woken up arrows are kept track of until they are no longer stuck, and become dormant again otherwise.
+ * <p>
+ * The amount of stuck arrows can be limited per instance and per chunk, see {@link #setLimits(Instance, int, int)}.
+ * When an arrow gets stuck while a limit is reached, the oldest stuck arrows are removed.
+ * Arrows which were woken up but are still stuck keep their age, since they are never removed from the order.
+ * <p>
+ * The arrows of an instance are kept until {@link #clear(Instance)} is called,
+ * which should be done when the instance is unregistered.
+ */
+public class StuckArrows {
+	private static final Map<UUID, StuckArrows> INSTANCES = new ConcurrentHashMap<>();
+	
+	/**
+	 * The distance from the position of a player in which arrows are checked for pickup,
+	 * which is larger than the distance to the furthest corner of the pickup box of a player.
+	 */
+	private static final double PICKUP_RANGE = 3.0;
+	
+	private final ObjectLinkedOpenHashSet<AbstractArrow> arrows = new ObjectLinkedOpenHashSet<>();
+	private final Long2ObjectMap<ObjectLinkedOpenHashSet<AbstractArrow>> chunks = new Long2ObjectOpenHashMap<>();
+	private int instanceLimit, chunkLimit;
+	
+	/**
+	 * Limits the amount of stuck arrows in an instance.
+	 *
+	 * @param instance the instance
+	 * @param instanceLimit the maximum amount of stuck arrows in the instance, or 0 for no limit
+	 * @param chunkLimit the maximum amount of stuck arrows in a single chunk, or 0 for no limit
+	 */
+	public static void setLimits(@NotNull Instance instance, int instanceLimit, int chunkLimit) {
+		StuckArrows stuckArrows = INSTANCES.computeIfAbsent(instance.getUniqueId(), uuid -> new StuckArrows());
+		List<AbstractArrow> evicted;
+		synchronized (stuckArrows) {
+			stuckArrows.instanceLimit = instanceLimit;
+			stuckArrows.chunkLimit = chunkLimit;
+			evicted = stuckArrows.evict(null);
+		}
+		
+		evicted.forEach(AbstractArrow::remove);
+	}
+	
+	/**
+	 * Forgets the stuck arrows and limits of an instance.
+	 * This should be called when the instance is unregistered.
+	 *
+	 * @param instance the instance
+	 */
+	public static void clear(@NotNull Instance instance) {
+		StuckArrows stuckArrows = INSTANCES.remove(instance.getUniqueId());
+		if (stuckArrows == null) return;
+		
+		synchronized (stuckArrows) {
+			for (AbstractArrow arrow : stuckArrows.arrows) {
+				arrow.dormant = false;
+				arrow.dormantInstance = null;
+			}
+			stuckArrows.arrows.clear();
+			stuckArrows.chunks.clear();
+		}
+	}
+	
+	/**
+	 * @param instance the instance
+	 * @return the amount of stuck arrows in the instance which were dormant at least once
+	 */
+	public static int count(@NotNull Instance instance) {
+		StuckArrows stuckArrows = INSTANCES.get(instance.getUniqueId());
+		if (stuckArrows == null) return 0;
+		
+		synchronized (stuckArrows) {
+			return stuckArrows.arrows.size();
+		}
+	}
+	
+	/**
+	 * Adds a dormant arrow, removing the oldest arrows if a limit is reached.
+	 * An arrow which was woken up and is still stuck in the same chunk keeps its place.
+	 */
+	static void add(AbstractArrow arrow) {
+		Instance instance = arrow.getInstance();
+		if (instance == null) return;
+		
+		long chunk = chunkKey(arrow.getPosition());
+		if (arrow.dormantInstance != null) {
+			if (arrow.dormantInstance.equals(instance.getUniqueId()) && arrow.dormantChunk == chunk) return;
+			remove(arrow);
+		}
+		
+		StuckArrows stuckArrows = INSTANCES.computeIfAbsent(instance.getUniqueId(), uuid -> new StuckArrows());
+		List<AbstractArrow> evicted;
+		synchronized (stuckArrows) {
+			arrow.dormantInstance = instance.getUniqueId();
+			arrow.dormantChunk = chunk;
+			stuckArrows.arrows.add(arrow);
+			stuckArrows.chunks.computeIfAbsent(chunk, key -> new ObjectLinkedOpenHashSet<>()).add(arrow);
+			evicted = stuckArrows.evict(arrow);
+		}
+		
+		evicted.forEach(AbstractArrow::remove);
+	}
+	
+	static void remove(AbstractArrow arrow) {
+		// The instance the arrow was added in, the arrow may have been moved to another instance since
+		UUID instance = arrow.dormantInstance;
+		if (instance == null) return;
+		
+		StuckArrows stuckArrows = INSTANCES.get(instance);
+		if (stuckArrows == null) {
+			arrow.dormant = false;
+			arrow.dormantInstance = null;
+			return;
+		}
+		
+		synchronized (stuckArrows) {
+			stuckArrows.removeArrow(arrow);
+		}
+	}
+	
+	/**
+	 * Lets a moving player pick up the dormant arrows near their new position.
+	 */
+	static void onPlayerMove(Player player, Point newPosition) {
+		Instance instance = player.getInstance();
+		if (instance == null) return;
+		
+		StuckArrows stuckArrows = INSTANCES.get(instance.getUniqueId());
+		if (stuckArrows == null) return;
+		
+		List<AbstractArrow> nearby = stuckArrows.getNear(newPosition, PICKUP_RANGE);
+		for (AbstractArrow arrow : nearby) {
+			arrow.tryPickup(player, newPosition);
+		}
+	}
+	
+	/**
+	 * Wakes up the dormant arrows next to a block which is changed, so they check whether they are still stuck.
+	 */
+	static void onBlockChange(Instance instance, Point blockPosition) {
+		StuckArrows stuckArrows = INSTANCES.get(instance.getUniqueId());
+		if (stuckArrows == null) return;
+		
+		Point center = blockPosition.add(0.5, 0.5, 0.5);
+		for (AbstractArrow arrow : stuckArrows.getNear(center, 1.5)) {
+			arrow.dormant = false;
+		}
+	}
+	
+	/**
+	 * Wakes up the dormant arrows next to an area of blocks which was changed without a player breaking them,
+	 * for example by an explosion, so they check whether they are still stuck.
+	 *
+	 * @param instance the instance
+	 * @param min the block position with the lowest coordinates of the area
+	 * @param max the block position with the highest coordinates of the area
+	 */
+	public static void onBlocksChange(@NotNull Instance instance, @NotNull Point min, @NotNull Point max) {
+		StuckArrows stuckArrows = INSTANCES.get(instance.getUniqueId());
+		if (stuckArrows == null) return;
+		
+		// Arrows stick out of their block, so the area is extended by a block like for a single block
+		double minX = min.blockX() - 1, minY = min.blockY() - 1, minZ = min.blockZ() - 1;
+		double maxX = max.blockX() + 2, maxY = max.blockY() + 2, maxZ = max.blockZ() + 2;
+		int minChunkX = (int) Math.floor(minX) >> 4;
+		int maxChunkX = (int) Math.floor(maxX) >> 4;
+		int minChunkZ = (int) Math.floor(minZ) >> 4;
+		int maxChunkZ = (int) Math.floor(maxZ) >> 4;
+		
+		synchronized (stuckArrows) {
+			if (stuckArrows.arrows.isEmpty()) return;
+			
+			List<AbstractArrow> nearby = new ArrayList<>();
+			for (int chunkX = minChunkX; chunkX <= maxChunkX; chunkX++) {
+				for (int chunkZ = minChunkZ; chunkZ <= maxChunkZ; chunkZ++) {
+					ObjectLinkedOpenHashSet<AbstractArrow> chunkArrows = stuckArrows.chunks.get(chunkKey(chunkX, chunkZ));
+					if (chunkArrows == null) continue;
+					
+					for (AbstractArrow arrow : chunkArrows) {
+						Point position = arrow.getPosition();
+						if (position.x() >= minX && position.x() <= maxX && position.y() >= minY
+								&& position.y() <= maxY && position.z() >= minZ && position.z() <= maxZ) {
+							nearby.add(arrow);
+						}
+					}
+				}
+			}
+			
+			for (AbstractArrow arrow : nearby) {
+				arrow.dormant = false;
+			}
+		}
+	}
+	
+	private List<AbstractArrow> getNear(Point position, double range) {
+		List<AbstractArrow> result = new ArrayList<>();
+		double rangeSquared = range * range;
+		int minChunkX = (int) Math.floor(position.x() - range) >> 4;
+		int maxChunkX = (int) Math.floor(position.x() + range) >> 4;
+		int minChunkZ = (int) Math.floor(position.z() - range) >> 4;
+		int maxChunkZ = (int) Math.floor(position.z() + range) >> 4;
+		
+		synchronized (this) {
+			if (arrows.isEmpty()) return result;
+			
+			for (int chunkX = minChunkX; chunkX <= maxChunkX; chunkX++) {
+				for (int chunkZ = minChunkZ; chunkZ <= maxChunkZ; chunkZ++) {
+					ObjectLinkedOpenHashSet<AbstractArrow> chunkArrows = chunks.get(chunkKey(chunkX, chunkZ));
+					if (chunkArrows == null) continue;
+					
+					for (AbstractArrow arrow : chunkArrows) {
+						if (arrow.getPosition().distanceSquared(position) < rangeSquared) result.add(arrow);
+					}
+				}
+			}
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Removes the oldest arrows until the limits are no longer exceeded.
+	 * The removed arrows are returned, so they can be removed from the instance outside of the lock.
+	 *
+	 * @param added the arrow which was added, whose chunk is checked, or null to check all chunks
+	 */
+	private List<AbstractArrow> evict(AbstractArrow added) {
+		List<AbstractArrow> evicted = new ArrayList<>();
+		if (chunkLimit > 0) {
+			if (added != null) {
+				evictFromChunk(chunks.get(added.dormantChunk), evicted);
+			} else {
+				for (ObjectLinkedOpenHashSet<AbstractArrow> chunkArrows : new ArrayList<>(chunks.values())) {
+					evictFromChunk(chunkArrows, evicted);
+				}
+			}
+		}
+		
+		if (instanceLimit > 0) {
+			while (arrows.size() > instanceLimit) {
+				AbstractArrow oldest = arrows.first();
+				removeArrow(oldest);
+				evicted.add(oldest);
+			}
+		}
+		
+		return evicted;
+	}
+	
+	private void evictFromChunk(ObjectLinkedOpenHashSet<AbstractArrow> chunkArrows, List<AbstractArrow> evicted) {
+		while (chunkArrows != null && chunkArrows.size() > chunkLimit) {
+			AbstractArrow oldest = chunkArrows.first();
+			removeArrow(oldest);
+			evicted.add(oldest);
+		}
+	}
+	
+	private void removeArrow(AbstractArrow arrow) {
+		if (!arrows.remove(arrow)) return;
+		arrow.dormant = false;
+		arrow.dormantInstance = null;
+		
+		ObjectLinkedOpenHashSet<AbstractArrow> chunkArrows = chunks.get(arrow.dormantChunk);
+		if (chunkArrows == null) return;
+		
+		chunkArrows.remove(arrow);
+		if (chunkArrows.isEmpty()) chunks.remove(arrow.dormantChunk);
+	}
+	
+	private static long chunkKey(Point position) {
+		return chunkKey(position.blockX() >> 4, position.blockZ() >> 4);
+	}
+	
+	private static long chunkKey(int chunkX, int chunkZ) {
+		return (long) chunkX << 32 | (chunkZ & 0xFFFFFFFFL);
+	}
+}
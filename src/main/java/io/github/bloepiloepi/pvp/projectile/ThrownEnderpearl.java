@@ -2,12 +2,14 @@ package io.github.bloepiloepi.pvp.projectile;
 
 import io.github.bloepiloepi.pvp.damage.CustomDamageType;
 import io.github.bloepiloepi.pvp.entity.EntityUtils;
-import io.github.bloepiloepi.pvp.entity.Tracker;
+import io.github.bloepiloepi.pvp.entity.PvpState;
 import net.minestom.server.coordinate.Pos;
 import net.minestom.server.entity.Entity;
 import net.minestom.server.entity.EntityType;
 import net.minestom.server.entity.Player;
 import net.minestom.server.entity.metadata.item.ThrownEnderPearlMeta;
+import net.minestom.server.instance.Chunk;
+import net.minestom.server.instance.Instance;
 import net.minestom.server.item.ItemStack;
 import net.minestom.server.network.packet.server.play.ParticlePacket;
 import net.minestom.server.particle.Particle;
@@ -40,6 +42,11 @@ public class ThrownEnderpearl extends CustomEntityProjectile implements ItemHold
 		
 		if (isRemoved()) return;
 		
+		// Teleporting into an unloaded chunk would load it synchronously
+		Instance instance = getInstance();
+		Chunk chunk = instance == null ? null : instance.getChunkAt(position);
+		if (chunk == null || !chunk.isLoaded()) return;
+		
 		Entity shooter = getShooter();
 		if (shooter != null) {
 			Pos shooterPos = shooter.getPosition();
@@ -54,7 +61,7 @@ public class ThrownEnderpearl extends CustomEntityProjectile implements ItemHold
 				}
 				
 				player.teleport(position);
-				Tracker.fallDistance.put(player.getUuid(), 0.0);
+				PvpState.getOrCreate(player).setFallDistance(0.0);
 				
 				player.damage(CustomDamageType.ENDER_PEARL, 5.0F);
 			}
@@ -5,6 +5,7 @@ import io.github.bloepiloepi.pvp.potion.effect.CustomPotionEffect;
 import io.github.bloepiloepi.pvp.potion.effect.CustomPotionEffects;
 import io.github.bloepiloepi.pvp.potion.item.CustomPotionType;
 import io.github.bloepiloepi.pvp.utils.EffectManager;
+import io.github.bloepiloepi.pvp.utils.SpatialUtils;
 import net.minestom.server.collision.BoundingBox;
 import net.minestom.server.coordinate.Pos;
 import net.minestom.server.effects.Effects;
@@ -12,6 +13,7 @@ import net.minestom.server.entity.Entity;
 import net.minestom.server.entity.EntityType;
 import net.minestom.server.entity.LivingEntity;
 import net.minestom.server.entity.metadata.item.ThrownPotionMeta;
+import net.minestom.server.instance.EntityTracker;
 import net.minestom.server.item.ItemStack;
 import net.minestom.server.item.Material;
 import net.minestom.server.item.metadata.PotionMeta;
@@ -71,8 +73,8 @@ public class ThrownPotion extends CustomEntityProjectile implements ItemHoldingP
 	
 	private void applySplash(List<Potion> potions, @Nullable Entity hitEntity) {
 		BoundingBox boundingBox = getBoundingBox().expand(8.0D, 4.0D, 8.0D);
-		List<LivingEntity> entities = Objects.requireNonNull(getInstance()).getEntities().stream()
-				.filter(entity -> boundingBox.intersectEntity(getPosition(), entity))
+		List<LivingEntity> entities = SpatialUtils.getIntersecting(Objects.requireNonNull(getInstance()),
+						getPosition(), boundingBox, EntityTracker.Target.ENTITIES).stream()
 				.filter(entity -> entity instanceof LivingEntity)
 				.map(entity -> (LivingEntity) entity).collect(Collectors.toList());
 		
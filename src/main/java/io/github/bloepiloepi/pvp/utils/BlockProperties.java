@@ -0,0 +1,86 @@
+package io.github.bloepiloepi.pvp.utils;
+
+import net.minestom.server.MinecraftServer;
+import net.minestom.server.gamedata.tags.Tag;
+import net.minestom.server.instance.block.Block;
+import net.minestom.server.utils.NamespaceID;
+
+import java.util.BitSet;
+
+/**
+ * Block properties used in hot paths, precomputed by block id.
+ * Like {@link Block#compare(Block)}, these ignore the block state.
+ */
+public class BlockProperties {
+	private static final BitSet CLIMBABLE = new BitSet();
+	private static final BitSet FENCE_LIKE = new BitSet();
+	private static final String[] CLIMB_LOCATIONS;
+	
+	static {
+		Block[] trapdoors = new Block[] {
+				Block.ACACIA_TRAPDOOR, Block.BIRCH_TRAPDOOR, Block.CRIMSON_TRAPDOOR,
+				Block.DARK_OAK_TRAPDOOR, Block.IRON_TRAPDOOR, Block.JUNGLE_TRAPDOOR,
+				Block.OAK_TRAPDOOR, Block.SPRUCE_TRAPDOOR, Block.WARPED_TRAPDOOR
+		};
+		
+		for (Block block : new Block[] {
+				Block.LADDER, Block.VINE, Block.TWISTING_VINES, Block.TWISTING_VINES_PLANT,
+				Block.WEEPING_VINES, Block.WEEPING_VINES_PLANT
+		}) {
+			CLIMBABLE.set(block.id());
+		}
+		for (Block trapdoor : trapdoors) {
+			CLIMBABLE.set(trapdoor.id());
+		}
+		
+		CLIMB_LOCATIONS = new String[CLIMBABLE.length()];
+		CLIMB_LOCATIONS[Block.LADDER.id()] = "ladder";
+		for (Block trapdoor : trapdoors) {
+			CLIMB_LOCATIONS[trapdoor.id()] = "ladder";
+		}
+		CLIMB_LOCATIONS[Block.VINE.id()] = "vines";
+		CLIMB_LOCATIONS[Block.WEEPING_VINES.id()] = "weeping_vines";
+		CLIMB_LOCATIONS[Block.WEEPING_VINES_PLANT.id()] = "weeping_vines";
+		CLIMB_LOCATIONS[Block.TWISTING_VINES.id()] = "twisting_vines";
+		CLIMB_LOCATIONS[Block.TWISTING_VINES_PLANT.id()] = "twisting_vines";
+		
+		for (String tagName : new String[] {"minecraft:fences", "minecraft:walls", "minecraft:fence_gates"}) {
+			Tag tag = MinecraftServer.getTagManager().getTag(Tag.BasicType.BLOCKS, tagName);
+			if (tag == null) continue;
+			
+			for (NamespaceID namespace : tag.getValues()) {
+				Block block = Block.fromNamespaceId(namespace);
+				if (block != null) FENCE_LIKE.set(block.id());
+			}
+		}
+	}
+	
+	/**
+	 * @return whether entities can climb in the block
+	 */
+	public static boolean isClimbable(Block block) {
+		return CLIMBABLE.get(block.id());
+	}
+	
+	/**
+	 * Gets the location used in fall death messages for a climbed block,
+	 * e.g. {@code ladder} for {@code death.fell.accident.ladder}.
+	 *
+	 * @param block the climbed block
+	 * @return the fall location of the block
+	 */
+	public static String getClimbLocation(Block block) {
+		if (block.compare(Block.SCAFFOLDING)) return "scaffolding";
+		
+		int id = block.id();
+		String location = id < CLIMB_LOCATIONS.length ? CLIMB_LOCATIONS[id] : null;
+		return location == null ? "other_climbable" : location;
+	}
+	
+	/**
+	 * @return whether the block is a fence, wall or fence gate, which are higher than a full block
+	 */
+	public static boolean isFenceLike(Block block) {
+		return FENCE_LIKE.get(block.id());
+	}
+}
@@ -0,0 +1,43 @@
+package io.github.bloepiloepi.pvp.utils;
+
+import net.minestom.server.MinecraftServer;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * The clock used for PvP timings, like cooldowns, combat duration and item use time.
+ * It is based on ticks instead of wall-clock time, so timings stay consistent when the server lags.
+ * <p>
+ * By default {@link #SERVER} is used, which counts the ticks the server has run.
+ * For tests and simulations a {@link ManualCombatClock} can be set, which only advances when it is stepped.
+ */
+public abstract class CombatClock {
+	public static final ServerTickClock SERVER = new ServerTickClock();
+	
+	private static volatile CombatClock clock = SERVER;
+	
+	public static @NotNull CombatClock get() {
+		return clock;
+	}
+	
+	/**
+	 * Sets the clock used for all PvP timings.
+	 * This should be done before any timings are stored, since they are not converted between clocks.
+	 *
+	 * @param clock the new clock
+	 */
+	public static void set(@NotNull CombatClock clock) {
+		CombatClock.clock = clock;
+	}
+	
+	/**
+	 * @return the current tick
+	 */
+	public abstract long getTick();
+	
+	/**
+	 * @return the current game time in milliseconds, which is the current tick multiplied by the tick duration
+	 */
+	public long getMillis() {
+		return getTick() * MinecraftServer.TICK_MS;
+	}
+}
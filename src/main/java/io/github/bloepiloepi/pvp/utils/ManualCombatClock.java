@@ -0,0 +1,33 @@
+package io.github.bloepiloepi.pvp.utils;
+
+/**
+ * A clock which only advances when it is stepped, useful for tests and simulations.
+ */
+public class ManualCombatClock extends CombatClock {
+	private volatile long tick;
+	
+	public ManualCombatClock() {
+		this(0);
+	}
+	
+	public ManualCombatClock(long startTick) {
+		this.tick = startTick;
+	}
+	
+	@Override
+	public long getTick() {
+		return tick;
+	}
+	
+	public synchronized void step() {
+		step(1);
+	}
+	
+	public synchronized void step(long ticks) {
+		tick += ticks;
+	}
+	
+	public synchronized void setTick(long tick) {
+		this.tick = tick;
+	}
+}
@@ -0,0 +1,25 @@
+package io.github.bloepiloepi.pvp.utils;
+
+/**
+ * A clock which counts the ticks the server has run since the PvP extension was initialized.
+ * It is advanced by the tracker at the start of every server tick.
+ */
+public class ServerTickClock extends CombatClock {
+	private volatile long tick;
+	
+	ServerTickClock() {
+	}
+	
+	@Override
+	public long getTick() {
+		return tick;
+	}
+	
+	/**
+	 * Advances the clock by one tick, only to be called once every server tick.
+	 */
+	@SuppressWarnings("NonAtomicOperationOnVolatileField")
+	public void tick() {
+		tick++;
+	}
+}
@@ -5,27 +5,22 @@ import net.kyori.adventure.sound.Sound;
 import net.minestom.server.coordinate.Point;
 import net.minestom.server.entity.Entity;
 import net.minestom.server.entity.Player;
+import net.minestom.server.instance.EntityTracker;
 import net.minestom.server.instance.Instance;
 import net.minestom.server.sound.SoundEvent;
 
+import java.util.List;
 import java.util.Objects;
 import java.util.function.Predicate;
-import java.util.stream.Collectors;
 
 public class SoundManager {
 	public static void sendToAround(Instance instance, Point position, SoundEvent sound, Sound.Source source, float volume, float pitch, Predicate<Player> predicate) {
 		double distance = volume > 1.0F ? (double) (16.0F * volume) : 16.0D;
 		
-		Predicate<Player> positionPredicate = (player) -> player.getPosition().distance(position) < distance;
-		if (predicate != null) {
-			predicate = predicate.and(positionPredicate);
-		} else {
-			predicate = positionPredicate;
-		}
+		List<Player> players = SpatialUtils.getInRadius(instance, position, distance, EntityTracker.Target.PLAYERS);
+		if (predicate != null) players.removeIf(predicate.negate());
 		
-		Audience audience = Audience.audience(instance
-				.getPlayers().stream().filter(predicate)
-				.collect(Collectors.toList()));
+		Audience audience = Audience.audience(players);
 		
 		audience.playSound(Sound.sound(sound.key(), source, volume, pitch), position.x(), position.y(), position.z());
 	}
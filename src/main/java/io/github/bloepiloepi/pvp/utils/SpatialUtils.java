@@ -0,0 +1,71 @@
+package io.github.bloepiloepi.pvp.utils;
+
+import net.minestom.server.collision.BoundingBox;
+import net.minestom.server.coordinate.Point;
+import net.minestom.server.entity.Entity;
+import net.minestom.server.instance.EntityTracker;
+import net.minestom.server.instance.Instance;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Range queries for entities near a position.
+ * <p>
+ * These use the entity tracker of the instance, which keeps entities in chunk buckets
+ * and is updated by Minestom when entities move or are added and removed.
+ * Only the chunks in range are visited instead of every entity in the instance.
+ * The results are copied into a list, so they can be damaged or moved while iterating.
+ */
+public class SpatialUtils {
+	/**
+	 * The largest distance between the position of an entity and the edge of its bounding box.
+	 * The largest vanilla entities (giants) reach about 12 blocks from their position.
+	 */
+	public static final double MAX_ENTITY_EXTENT = 12.0;
+	
+	/**
+	 * Gets the entities whose position is within the given radius of a point.
+	 *
+	 * @param instance the instance to search in
+	 * @param center the center of the search
+	 * @param radius the radius, exclusive
+	 * @param target the type of entities to search for
+	 * @return a new list containing the entities found
+	 */
+	public static <T extends Entity> @NotNull List<T> getInRadius(@NotNull Instance instance, @NotNull Point center,
+	                                                               double radius, @NotNull EntityTracker.Target<T> target) {
+		List<T> result = new ArrayList<>();
+		double radiusSquared = radius * radius;
+		instance.getEntityTracker().nearbyEntities(center, radius, target, entity -> {
+			if (entity.getPosition().distanceSquared(center) < radiusSquared) result.add(entity);
+		});
+		
+		return result;
+	}
+	
+	/**
+	 * Gets the entities whose bounding box intersects the given bounding box at a position.
+	 *
+	 * @param instance the instance to search in
+	 * @param position the position of the bounding box, at the bottom center like entity positions
+	 * @param boundingBox the bounding box
+	 * @param target the type of entities to search for
+	 * @return a new list containing the entities found
+	 */
+	public static <T extends Entity> @NotNull List<T> getIntersecting(@NotNull Instance instance, @NotNull Point position,
+	                                                                   @NotNull BoundingBox boundingBox, @NotNull EntityTracker.Target<T> target) {
+		double halfWidth = boundingBox.width() / 2;
+		double halfHeight = boundingBox.height() / 2;
+		double halfDepth = boundingBox.depth() / 2;
+		double range = Math.sqrt(halfWidth * halfWidth + halfHeight * halfHeight + halfDepth * halfDepth) + MAX_ENTITY_EXTENT;
+		
+		List<T> result = new ArrayList<>();
+		instance.getEntityTracker().nearbyEntities(position.add(0, halfHeight, 0), range, target, entity -> {
+			if (boundingBox.intersectEntity(position, entity)) result.add(entity);
+		});
+		
+		return result;
+	}
+}
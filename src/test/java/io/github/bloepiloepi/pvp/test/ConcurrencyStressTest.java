@@ -0,0 +1,146 @@
+package io.github.bloepiloepi.pvp.test;
+
+import io.github.bloepiloepi.pvp.config.DamageConfig;
+import io.github.bloepiloepi.pvp.config.PvPConfig;
+import io.github.bloepiloepi.pvp.damage.CustomDamageType;
+import io.github.bloepiloepi.pvp.entity.PvpState;
+import io.github.bloepiloepi.pvp.test.StressHarness.Json;
+import net.minestom.server.attribute.Attribute;
+import net.minestom.server.coordinate.Pos;
+import net.minestom.server.entity.EntityCreature;
+import net.minestom.server.entity.EntityType;
+import net.minestom.server.entity.LivingEntity;
+import net.minestom.server.instance.Instance;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Ticks many instances concurrently, with attackers in every instance hitting the same targets,
+ * and checks that no damage or invulnerability update is lost or applied twice.
+ * <p>
+ * Every instance is ticked on its own thread, like Minestom does with several tick threads.
+ * The targets live in the first instance, so they are hit from all threads at the same time while they tick.
+ * All attackers deal the same damage every tick, so sequentially, each target takes damage exactly once
+ * per invulnerability period and all other hits are blocked. Two threads both passing the invulnerability check
+ * would show up as extra damage.
+ * <p>
+ * Arguments: {@code --out=<file>} to also write the report to a file.
+ * The process exits with status 1 if any target took a different amount of damage than expected.
+ */
+public class ConcurrencyStressTest {
+	private static final int INSTANCES = 8;
+	private static final int ATTACKERS_PER_INSTANCE = 4;
+	private static final int TARGETS = 16;
+	private static final int TICKS = 400;
+	private static final float DAMAGE = 1.0F;
+	private static final float HEALTH = 1024.0F;
+	private static final int SURFACE = StressHarness.FLOOR;
+	
+	public static void main(String[] args) throws IOException, InterruptedException, ExecutionException {
+		StressHarness.init().addChild(PvPConfig.defaultBuilder().build().createNode());
+		
+		List<Instance> instances = new ArrayList<>();
+		List<List<LivingEntity>> attackers = new ArrayList<>();
+		for (int i = 0; i < INSTANCES; i++) {
+			// Knockback can push the targets out of their chunk
+			Instance instance = StressHarness.createInstance(StressHarness.flat(), 1);
+			instances.add(instance);
+			
+			List<LivingEntity> instanceAttackers = new ArrayList<>();
+			for (int j = 0; j < ATTACKERS_PER_INSTANCE; j++) {
+				instanceAttackers.add(spawn(instance, new Pos(2 + j, SURFACE, 2)));
+			}
+			attackers.add(instanceAttackers);
+		}
+		
+		List<LivingEntity> targets = new ArrayList<>();
+		for (int i = 0; i < TARGETS; i++) {
+			LivingEntity target = spawn(instances.get(0), new Pos(2 + i % 8, SURFACE, 8 + i / 8));
+			target.getAttribute(Attribute.MAX_HEALTH).setBaseValue(HEALTH);
+			target.setHealth(HEALTH);
+			targets.add(target);
+		}
+		
+		// A new invulnerability can start once no more than 10 ticks of the previous one are left
+		int period = DamageConfig.DEFAULT.getInvulnerabilityTicks();
+		int expectedHits = (TICKS + period - 1) / period;
+		
+		ExecutorService threads = Executors.newFixedThreadPool(INSTANCES);
+		CyclicBarrier barrier = new CyclicBarrier(INSTANCES);
+		for (int tick = 0; tick < TICKS; tick++) {
+			StressHarness.CLOCK.step();
+			long time = System.currentTimeMillis();
+			
+			List<Callable<Void>> tasks = new ArrayList<>();
+			for (int i = 0; i < INSTANCES; i++) {
+				Instance instance = instances.get(i);
+				List<LivingEntity> instanceAttackers = attackers.get(i);
+				tasks.add(() -> {
+					// Start all threads at once, so the hits overlap as much as possible
+					barrier.await();
+					tickInstance(instance, instanceAttackers, targets, time);
+					return null;
+				});
+			}
+			
+			for (Future<Void> future : threads.invokeAll(tasks)) {
+				future.get();
+			}
+		}
+		threads.shutdown();
+		
+		int failures = 0;
+		Json results = Json.array();
+		for (int i = 0; i < targets.size(); i++) {
+			LivingEntity target = targets.get(i);
+			float taken = HEALTH - target.getHealth();
+			int hits = Math.round(taken / DAMAGE);
+			PvpState state = PvpState.get(target);
+			boolean correct = hits == expectedHits && state != null && state.getLastDamageTaken() == DAMAGE;
+			if (!correct) failures++;
+			
+			results.add(Json.object()
+					.put("target", i)
+					.put("hits", hits)
+					.put("damageTaken", taken)
+					.put("correct", correct));
+		}
+		
+		StressHarness.report(Json.object()
+				.put("instances", INSTANCES)
+				.put("attackers", INSTANCES * ATTACKERS_PER_INSTANCE)
+				.put("ticks", TICKS)
+				.put("expectedHits", expectedHits)
+				.put("failures", failures)
+				.put("targets", results), args);
+		StressHarness.exit(failures == 0);
+	}
+	
+	/**
+	 * Ticks an instance and its entities, after which every attacker of the instance hits every target once.
+	 */
+	private static void tickInstance(Instance instance, List<LivingEntity> attackers,
+	                                 List<LivingEntity> targets, long time) {
+		StressHarness.tickInstance(instance, time);
+		
+		for (LivingEntity attacker : attackers) {
+			for (LivingEntity target : targets) {
+				target.damage(CustomDamageType.mob(attacker), DAMAGE);
+			}
+		}
+	}
+	
+	private static LivingEntity spawn(Instance instance, Pos position) {
+		EntityCreature entity = new EntityCreature(EntityType.ZOMBIE);
+		entity.setInstance(instance, position).join();
+		return entity;
+	}
+}
@@ -0,0 +1,108 @@
+package io.github.bloepiloepi.pvp.test;
+
+import io.github.bloepiloepi.pvp.config.ExplosionConfig;
+import io.github.bloepiloepi.pvp.events.ExplosionEvent;
+import io.github.bloepiloepi.pvp.explosion.ExplosionContext;
+import io.github.bloepiloepi.pvp.explosion.PvpExplosionSupplier;
+import io.github.bloepiloepi.pvp.test.StressHarness.Json;
+import net.minestom.server.coordinate.Point;
+import net.minestom.server.instance.Instance;
+import net.minestom.server.instance.block.Block;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares casting the block rays of explosions sequentially and in parallel, at strengths 4, 8 and 16,
+ * and reports the time per explosion as json.
+ * <p>
+ * Every explosion is created with its own seeded random, and the same seeds are used for both modes.
+ * The explosion event is cancelled, so only the rays are measured and the blocks are never changed.
+ * The blocks found by every explosion are summed into a checksum, which must be the same for both modes.
+ * <p>
+ * Arguments: {@code --out=<file>} to also write the report to a file.
+ * The process exits with status 1 if a checksum differs between the modes.
+ */
+public class ExplosionRaysBenchmark {
+	private static final float[] STRENGTHS = {4, 8, 16};
+	private static final int WARMUP_EXPLOSIONS = 200;
+	private static final int EXPLOSIONS = 1000;
+	private static final int CHUNK_RADIUS = 3;
+	private static final int SURFACE = StressHarness.FLOOR + 24;
+	
+	private static final PvpExplosionSupplier SEQUENTIAL = new PvpExplosionSupplier(ExplosionConfig.DEFAULT);
+	private static final PvpExplosionSupplier PARALLEL = new PvpExplosionSupplier(
+			ExplosionConfig.defaultBuilder().parallelRays(true, 0).build());
+	
+	private static long checksum;
+	
+	public static void main(String[] args) throws IOException {
+		StressHarness.init().addListener(ExplosionEvent.class, event -> {
+			checksum += checksum(event.getAffectedBlocks());
+			event.setCancelled(true);
+		});
+		
+		// Blocks of different resistance randomly placed above the floor
+		Instance instance = StressHarness.createInstance(StressHarness.terrain(SURFACE, 0.5,
+				Block.SANDSTONE, Block.OAK_PLANKS, Block.DIRT, Block.GLASS), CHUNK_RADIUS);
+		
+		Json results = Json.array();
+		boolean deterministic = true;
+		for (float strength : STRENGTHS) {
+			run(instance, SEQUENTIAL, strength, WARMUP_EXPLOSIONS);
+			run(instance, PARALLEL, strength, WARMUP_EXPLOSIONS);
+			
+			checksum = 0;
+			long sequential = run(instance, SEQUENTIAL, strength, EXPLOSIONS);
+			long sequentialChecksum = checksum;
+			
+			checksum = 0;
+			long parallel = run(instance, PARALLEL, strength, EXPLOSIONS);
+			long parallelChecksum = checksum;
+			
+			boolean same = sequentialChecksum == parallelChecksum;
+			deterministic &= same;
+			
+			results.add(Json.object()
+					.put("strength", strength)
+					.put("sequentialMs", StressHarness.millis(sequential / EXPLOSIONS))
+					.put("parallelMs", StressHarness.millis(parallel / EXPLOSIONS))
+					.put("sameBlocks", same));
+		}
+		
+		StressHarness.report(Json.object()
+				.put("explosions", EXPLOSIONS)
+				.put("parallelism", Runtime.getRuntime().availableProcessors())
+				.put("results", results), args);
+		StressHarness.exit(deterministic);
+	}
+	
+	/**
+	 * Creates explosions with the seeds 0 until {@code amount} above the same block.
+	 *
+	 * @return the total time taken
+	 */
+	private static long run(Instance instance, PvpExplosionSupplier supplier, float strength, int amount) {
+		long start = System.nanoTime();
+		for (int seed = 0; seed < amount; seed++) {
+			supplier.createExplosion(0.5f, SURFACE - 8.5f, 0.5f, strength,
+					ExplosionContext.DEFAULT, new Random(seed)).apply(instance);
+		}
+		
+		return System.nanoTime() - start;
+	}
+	
+	/**
+	 * @return a checksum of the blocks which does not depend on their order
+	 */
+	private static long checksum(List<Point> blocks) {
+		long sum = 0;
+		for (Point block : blocks) {
+			long hash = block.blockX() * 73856093L ^ block.blockY() * 19349663L ^ block.blockZ() * 83492791L;
+			sum += hash * 0x9E3779B97F4A7C15L;
+		}
+		
+		return sum;
+	}
+}
@@ -0,0 +1,252 @@
+package io.github.bloepiloepi.pvp.test;
+
+import io.github.bloepiloepi.pvp.config.ExplosionConfig;
+import io.github.bloepiloepi.pvp.config.ExplosionConfigBuilder;
+import io.github.bloepiloepi.pvp.config.PvPConfig;
+import io.github.bloepiloepi.pvp.damage.CustomDamageType;
+import io.github.bloepiloepi.pvp.events.ExplosionEvent;
+import io.github.bloepiloepi.pvp.explosion.CrystalEntity;
+import io.github.bloepiloepi.pvp.explosion.ExplosionContext;
+import io.github.bloepiloepi.pvp.explosion.ExplosionListener;
+import io.github.bloepiloepi.pvp.explosion.PvpExplosionSupplier;
+import io.github.bloepiloepi.pvp.test.StressHarness.Json;
+import net.minestom.server.coordinate.Pos;
+import net.minestom.server.coordinate.Vec;
+import net.minestom.server.entity.Player;
+import net.minestom.server.event.GlobalEventHandler;
+import net.minestom.server.event.entity.EntityDamageEvent;
+import net.minestom.server.instance.ChunkGenerator;
+import net.minestom.server.instance.Instance;
+import net.minestom.server.instance.block.Block;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Runs explosion heavy scenarios on an in-process server without network and reports the tick times as json.
+ * <p>
+ * Every scenario is run on open and on block-heavy terrain, in a fresh instance,
+ * once with explosions calculated on the tick thread and once asynchronously,
+ * see {@link ExplosionConfigBuilder#async(boolean)}. Both are compared by {@code asyncMeanTickRatio},
+ * the mean tick time of the asynchronous run divided by the one of the synchronous run.
+ * The server is ticked by {@link StressHarness} instead of the server thread, so the measured time
+ * only contains the work done for the scenario instance.
+ * <p>
+ * Arguments: {@code --optimized} to use the optional explosion optimizations instead of the default config,
+ * {@code --out=<file>} to also write the report to a file.
+ */
+public class ExplosionStressTest {
+	private static final int WARMUP_TICKS = 100;
+	private static final int TICKS = 400;
+	private static final int CHUNK_RADIUS = 4;
+	private static final int PLAYER_RADIUS = 6;
+	
+	private static long explosions;
+	private static long blocks;
+	private static long entities;
+	
+	public static void main(String[] args) throws IOException {
+		boolean optimized = Arrays.asList(args).contains("--optimized");
+		ExplosionConfig syncConfig = config(optimized, false);
+		ExplosionConfig asyncConfig = config(optimized, true);
+		
+		GlobalEventHandler eventHandler = StressHarness.init();
+		eventHandler.addChild(PvPConfig.defaultBuilder().explosion(syncConfig).build().createNode());
+		eventHandler.addListener(ExplosionEvent.class, event -> {
+			explosions++;
+			blocks += event.getAffectedBlocks().size();
+		});
+		eventHandler.addListener(EntityDamageEvent.class, event -> entities++);
+		
+		Json results = Json.array();
+		for (Scenario scenario : Scenario.values()) {
+			for (Terrain terrain : Terrain.values()) {
+				long[] syncTimes = new long[TICKS];
+				Json sync = run(scenario, terrain, syncConfig, syncTimes);
+				long[] asyncTimes = new long[TICKS];
+				Json async = run(scenario, terrain, asyncConfig, asyncTimes);
+				
+				double ratio = (double) Arrays.stream(asyncTimes).sum() / Arrays.stream(syncTimes).sum();
+				results.add(Json.object()
+						.put("scenario", scenario.name().toLowerCase(Locale.ROOT))
+						.put("terrain", terrain.name().toLowerCase(Locale.ROOT))
+						.put("sync", sync)
+						.put("async", async)
+						.put("asyncMeanTickRatio", Math.round(ratio * 1000) / 1000.0));
+			}
+		}
+		
+		StressHarness.report(Json.object()
+				.put("config", optimized ? "optimized" : "default")
+				.put("warmupTicks", WARMUP_TICKS)
+				.put("ticks", TICKS)
+				.put("results", results), args);
+		StressHarness.exit(true);
+	}
+	
+	private static ExplosionConfig config(boolean optimized, boolean async) {
+		ExplosionConfigBuilder builder = ExplosionConfig.defaultBuilder().async(async);
+		if (optimized) {
+			builder.parallelRays(true, 8)
+					.tntMerging(0.5)
+					.coarseExposure(2)
+					.packetDistance(64);
+		}
+		
+		return builder.build();
+	}
+	
+	/**
+	 * @param times the array to store the time of every measured tick in, sorted afterwards
+	 * @return the json report of the run
+	 */
+	private static Json run(Scenario scenario, Terrain terrain, ExplosionConfig config, long[] times) {
+		Instance instance = StressHarness.createInstance(terrain.generator, CHUNK_RADIUS);
+		instance.setExplosionSupplier(new PvpExplosionSupplier(config));
+		
+		Pos center = new Pos(0.5, terrain.surface, 0.5);
+		List<Pos> positions = new ArrayList<>();
+		for (int i = 0; i < scenario.players; i++) {
+			double angle = Math.PI * 2 * i / scenario.players;
+			positions.add(center.add(Math.cos(angle) * PLAYER_RADIUS, 0, Math.sin(angle) * PLAYER_RADIUS));
+		}
+		List<Player> players = StressHarness.spawnPlayers(instance, positions);
+		Random random = new Random(42);
+		scenario.setup(instance, center);
+		
+		for (int tick = 0; tick < WARMUP_TICKS; tick++) {
+			scenario.tick(instance, center, players, random, config, tick);
+			StressHarness.tick(instance);
+			StressHarness.keepAlive(players);
+		}
+		
+		explosions = 0;
+		blocks = 0;
+		entities = 0;
+		
+		long allocated = 0;
+		for (int tick = 0; tick < TICKS; tick++) {
+			long allocatedBefore = StressHarness.getAllocatedBytes();
+			long start = System.nanoTime();
+			
+			scenario.tick(instance, center, players, random, config, WARMUP_TICKS + tick);
+			StressHarness.tick(instance);
+			StressHarness.keepAlive(players);
+			
+			times[tick] = System.nanoTime() - start;
+			allocated += StressHarness.getAllocatedBytes() - allocatedBefore;
+		}
+		
+		StressHarness.removeInstance(instance);
+		
+		return Json.object()
+				.put("players", players.size())
+				.put("tickMs", StressHarness.tickMillis(times))
+				.put("allocatedBytesPerTick", allocated / TICKS)
+				.put("explosions", explosions)
+				.put("blocksDestroyed", blocks)
+				.put("entitiesDamaged", entities);
+	}
+	
+	private enum Scenario {
+		/**
+		 * Every second, 12 tnt are primed in the same block as a charge, next to a tnt with a longer fuse.
+		 */
+		TNT_CANNON(0) {
+			@Override
+			void tick(Instance instance, Pos center, List<Player> players, Random random, ExplosionConfig config, int tick) {
+				if (tick % 20 != 0) return;
+				
+				for (int i = 0; i < 12; i++) {
+					ExplosionListener.primeTnt(instance, center, null, 20, config);
+				}
+				ExplosionListener.primeTnt(instance, center.add(1, 0, 0), null, 30, config);
+			}
+		},
+		/**
+		 * 40 players standing in a circle, with 2 crystals being placed and attacked between them every tick.
+		 */
+		CRYSTAL_SPAM(40) {
+			@Override
+			void tick(Instance instance, Pos center, List<Player> players, Random random, ExplosionConfig config, int tick) {
+				if (players.isEmpty()) return;
+				
+				for (int i = 0; i < 2; i++) {
+					Player player = players.get(random.nextInt(players.size()));
+					Vec offset = new Vec(random.nextDouble() * 8 - 4, 0, random.nextDouble() * 8 - 4);
+					
+					CrystalEntity crystal = new CrystalEntity();
+					crystal.setInstance(instance, center.add(offset)).join();
+					crystal.damage(CustomDamageType.player(player), 1);
+				}
+			}
+		},
+		/**
+		 * A line of respawn anchors, of which one is detonated every 2 ticks.
+		 */
+		ANCHOR_CHAIN(8) {
+			@Override
+			void setup(Instance instance, Pos center) {
+				for (int i = 0; i < ANCHORS; i++) {
+					instance.setBlock(center.add(i * 2 - ANCHORS, 0, 0), ANCHOR);
+				}
+			}
+			
+			@Override
+			void tick(Instance instance, Pos center, List<Player> players, Random random, ExplosionConfig config, int tick) {
+				if (tick % 2 != 0) return;
+				
+				int index = tick / 2 % ANCHORS;
+				Pos position = center.add(index * 2 - ANCHORS, 0, 0);
+				if (index == 0) setup(instance, center);
+				
+				instance.setBlock(position, Block.AIR);
+				PvpExplosionSupplier.explode(
+						instance,
+						(float) position.blockX() + 0.5f,
+						(float) position.blockY() + 0.5f,
+						(float) position.blockZ() + 0.5f,
+						5.0f,
+						ExplosionContext.DEFAULT.withFire(true).withAnchor(true)
+				);
+			}
+		};
+		
+		private static final int ANCHORS = 32;
+		private static final Block ANCHOR = Block.RESPAWN_ANCHOR.withProperty("charges", "4");
+		
+		private final int players;
+		
+		Scenario(int players) {
+			this.players = players;
+		}
+		
+		void setup(Instance instance, Pos center) {
+		}
+		
+		abstract void tick(Instance instance, Pos center, List<Player> players, Random random, ExplosionConfig config, int tick);
+	}
+	
+	private enum Terrain {
+		/**
+		 * A flat floor with nothing above it.
+		 */
+		OPEN(StressHarness.FLOOR, 0),
+		/**
+		 * A flat floor with 12 layers of randomly placed blocks above it, which explosions can break and are blocked by.
+		 */
+		BLOCK_HEAVY(StressHarness.FLOOR + 12, 0.6);
+		
+		private final int surface;
+		private final ChunkGenerator generator;
+		
+		Terrain(int surface, double fill) {
+			this.surface = surface;
+			this.generator = StressHarness.terrain(surface, fill, Block.SANDSTONE, Block.OAK_PLANKS);
+		}
+	}
+}
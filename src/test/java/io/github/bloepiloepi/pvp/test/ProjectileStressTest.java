@@ -0,0 +1,329 @@
+package io.github.bloepiloepi.pvp.test;
+
+import io.github.bloepiloepi.pvp.config.PvPConfig;
+import io.github.bloepiloepi.pvp.events.ProjectileHitEvent.ProjectileBlockHitEvent;
+import io.github.bloepiloepi.pvp.projectile.Arrow;
+import io.github.bloepiloepi.pvp.projectile.ProjectileManager;
+import io.github.bloepiloepi.pvp.projectile.Snowball;
+import io.github.bloepiloepi.pvp.projectile.StuckArrows;
+import io.github.bloepiloepi.pvp.test.StressHarness.Json;
+import net.minestom.server.coordinate.Pos;
+import net.minestom.server.coordinate.Vec;
+import net.minestom.server.entity.Entity;
+import net.minestom.server.entity.Player;
+import net.minestom.server.event.GlobalEventHandler;
+import net.minestom.server.event.entity.EntityDamageEvent;
+import net.minestom.server.instance.Instance;
+import net.minestom.server.item.ItemStack;
+import net.minestom.server.item.Material;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Lets 20 players throw snowballs at each other on an in-process server without network,
+ * once with the snowballs moved by themselves and once by a {@link ProjectileManager},
+ * and reports the tick times and the allocation rate of both as json.
+ * <p>
+ * The players stand in two lines facing each other, and every player throws a snowball every other tick.
+ * The server is ticked by {@link StressHarness} instead of the server thread.
+ * <p>
+ * After that, arrows are shot up into the air from the same random points every tick, until thousands of them are in flight,
+ * again once without and once with a manager. Arrows check for hits by themselves even when managed,
+ * so this reports the tick time divided by the amount of arrows in flight, the cost of a flying arrow per tick.
+ * <p>
+ * Before that, the same snowballs are launched in an empty area with and without a manager,
+ * and the points where they land are compared. A managed snowball starts moving a tick later,
+ * but must follow the same path and land on the same point.
+ * <p>
+ * Arguments: {@code --out=<file>} to also write the report to a file.
+ * The process exits with status 1 if a managed snowball lands somewhere else than its unmanaged copy.
+ */
+public class ProjectileStressTest {
+	private static final int WARMUP_TICKS = 200;
+	private static final int TICKS = 1000;
+	private static final int CHUNK_RADIUS = 3;
+	private static final int PLAYERS = 20;
+	private static final int THROW_INTERVAL = 2;
+	private static final int LANDING_SHOTS = 64;
+	private static final int LANDING_TICKS = 200;
+	private static final double LANDING_TOLERANCE = 1.0E-6;
+	private static final int ARROWS_PER_TICK = 60;
+	private static final int ARROW_WARMUP_TICKS = 100;
+	private static final int ARROW_TICKS = 400;
+	private static final int ARROW_AREA = 16;
+	
+	private static final ItemStack SNOWBALL = ItemStack.of(Material.SNOWBALL);
+	
+	private static final Map<Entity, Pos> LANDINGS = new IdentityHashMap<>();
+	
+	private static long thrown;
+	private static long hits;
+	
+	public static void main(String[] args) throws IOException {
+		GlobalEventHandler eventHandler = StressHarness.init();
+		eventHandler.addChild(PvPConfig.defaultBuilder().build().createNode());
+		eventHandler.addListener(EntityDamageEvent.class, event -> hits++);
+		eventHandler.addListener(ProjectileBlockHitEvent.class,
+				event -> LANDINGS.put(event.getEntity(), event.getEntity().getPosition()));
+		
+		Pos[] unmanagedLandings = launch(false);
+		Pos[] managedLandings = launch(true);
+		int landed = 0;
+		double maxDeviation = 0;
+		boolean sameLandings = true;
+		for (int i = 0; i < LANDING_SHOTS; i++) {
+			Pos unmanaged = unmanagedLandings[i], managed = managedLandings[i];
+			if (unmanaged == null || managed == null) {
+				sameLandings &= unmanaged == managed;
+				continue;
+			}
+			
+			landed++;
+			maxDeviation = Math.max(maxDeviation, unmanaged.distance(managed));
+		}
+		sameLandings &= maxDeviation <= LANDING_TOLERANCE;
+		
+		Instance instance = StressHarness.createInstance(StressHarness.flat(), CHUNK_RADIUS);
+		List<Player> players = StressHarness.spawnPlayers(instance, playerPositions());
+		
+		long[] unmanagedTimes = new long[TICKS];
+		Json unmanagedResult = run(instance, players, false, unmanagedTimes);
+		ProjectileManager.enable(instance);
+		long[] managedTimes = new long[TICKS];
+		Json managedResult = run(instance, players, true, managedTimes);
+		
+		// Compare the medians, single slow ticks should not decide the result
+		boolean managedNotSlower = StressHarness.percentile(managedTimes, 50)
+				<= StressHarness.percentile(unmanagedTimes, 50);
+		StressHarness.removeInstance(instance);
+		
+		Json unmanagedArrows = shootArrows(false);
+		Json managedArrows = shootArrows(true);
+		
+		StressHarness.report(Json.object()
+				.put("warmupTicks", WARMUP_TICKS)
+				.put("ticks", TICKS)
+				.put("players", players.size())
+				.put("landings", Json.object()
+						.put("shots", LANDING_SHOTS)
+						.put("landed", landed)
+						.put("maxDeviation", maxDeviation)
+						.put("same", sameLandings))
+				.put("results", Json.array().add(unmanagedResult).add(managedResult))
+				.put("managedNotSlower", managedNotSlower)
+				.put("arrows", Json.array().add(unmanagedArrows).add(managedArrows)), args);
+		StressHarness.exit(sameLandings);
+	}
+	
+	/**
+	 * Launches snowballs in every direction from the same point of an empty instance,
+	 * and waits until all of them landed.
+	 *
+	 * @return the landing point of every snowball, or null for the ones which did not land
+	 */
+	private static Pos[] launch(boolean managed) {
+		Instance instance = StressHarness.createInstance(StressHarness.flat(), CHUNK_RADIUS);
+		if (managed) ProjectileManager.enable(instance);
+		
+		// The same directions for both runs
+		Random random = new Random(0);
+		Entity[] snowballs = new Entity[LANDING_SHOTS];
+		for (int i = 0; i < LANDING_SHOTS; i++) {
+			Snowball snowball = new Snowball(null);
+			snowball.setItem(SNOWBALL);
+			snowball.setInstance(instance, new Pos(0.5, StressHarness.FLOOR + 1.5, 0.5));
+			
+			Pos direction = Pos.ZERO.withView(random.nextFloat() * 360, -random.nextFloat() * 60);
+			snowball.setVelocity(direction.direction().mul(20));
+			snowballs[i] = snowball;
+		}
+		
+		for (int tick = 0; tick < LANDING_TICKS && LANDINGS.size() < LANDING_SHOTS; tick++) {
+			StressHarness.tick(instance);
+		}
+		
+		Pos[] result = new Pos[LANDING_SHOTS];
+		for (int i = 0; i < LANDING_SHOTS; i++) {
+			result[i] = LANDINGS.get(snowballs[i]);
+		}
+		LANDINGS.clear();
+		
+		if (managed) ProjectileManager.disable(instance);
+		StressHarness.removeInstance(instance);
+		return result;
+	}
+	
+	/**
+	 * Lets the players throw snowballs for the warmup ticks and the measured ticks, and removes the remaining snowballs.
+	 *
+	 * @param times the array to store the time of every measured tick in, sorted afterwards
+	 * @return the json report of the run
+	 */
+	private static Json run(Instance instance, List<Player> players, boolean managed, long[] times) {
+		thrown = 0;
+		hits = 0;
+		
+		for (int tick = 0; tick < WARMUP_TICKS; tick++) {
+			throwSnowballs(instance, players, tick);
+			tick(instance, players);
+		}
+		
+		thrown = 0;
+		hits = 0;
+		
+		long allocated = 0;
+		long inFlight = 0;
+		int maxInFlight = 0;
+		for (int tick = 0; tick < TICKS; tick++) {
+			long allocatedBefore = StressHarness.getAllocatedBytes();
+			long start = System.nanoTime();
+			
+			throwSnowballs(instance, players, WARMUP_TICKS + tick);
+			tick(instance, players);
+			
+			times[tick] = System.nanoTime() - start;
+			allocated += StressHarness.getAllocatedBytes() - allocatedBefore;
+			
+			int flying = instance.getEntities().size() - players.size();
+			inFlight += flying;
+			maxInFlight = Math.max(maxInFlight, flying);
+		}
+		
+		for (Entity entity : new ArrayList<>(instance.getEntities())) {
+			if (entity instanceof Snowball) entity.remove();
+		}
+		
+		return Json.object()
+				.put("config", managed ? "managed" : "default")
+				.put("tickMs", StressHarness.tickMillis(times))
+				.put("allocatedBytesPerTick", allocated / TICKS)
+				.put("allocatedBytesPerSnowball", thrown == 0 ? 0 : allocated / thrown)
+				.put("snowballsThrown", thrown)
+				.put("snowballHits", hits)
+				.put("snowballsInFlight", Json.object()
+						.put("mean", inFlight / TICKS)
+						.put("max", maxInFlight));
+	}
+	
+	/**
+	 * Shoots arrows almost straight up from random points of an empty instance every tick,
+	 * and measures the ticks once the amount of arrows in flight is stable.
+	 * Stuck arrows are limited, so the arrows in the ground do not keep growing.
+	 *
+	 * @return the json report of the run
+	 */
+	private static Json shootArrows(boolean managed) {
+		Instance instance = StressHarness.createInstance(StressHarness.flat(), CHUNK_RADIUS);
+		if (managed) ProjectileManager.enable(instance);
+		StuckArrows.setLimits(instance, 1000, 64);
+		
+		// The same arrows for both runs
+		Random random = new Random(0);
+		for (int tick = 0; tick < ARROW_WARMUP_TICKS; tick++) {
+			shootArrows(instance, random);
+			StressHarness.tick(instance);
+		}
+		
+		long[] times = new long[ARROW_TICKS];
+		long allocated = 0;
+		long inFlight = 0;
+		int maxInFlight = 0;
+		for (int tick = 0; tick < ARROW_TICKS; tick++) {
+			long allocatedBefore = StressHarness.getAllocatedBytes();
+			long start = System.nanoTime();
+			
+			shootArrows(instance, random);
+			StressHarness.tick(instance);
+			
+			times[tick] = System.nanoTime() - start;
+			allocated += StressHarness.getAllocatedBytes() - allocatedBefore;
+			
+			int flying = 0;
+			for (Entity entity : instance.getEntities()) {
+				if (entity instanceof Arrow && !entity.isOnGround()) flying++;
+			}
+			inFlight += flying;
+			maxInFlight = Math.max(maxInFlight, flying);
+		}
+		
+		long total = 0;
+		for (long time : times) {
+			total += time;
+		}
+		
+		if (managed) ProjectileManager.disable(instance);
+		StuckArrows.clear(instance);
+		StressHarness.removeInstance(instance);
+		
+		return Json.object()
+				.put("config", managed ? "managed" : "default")
+				.put("tickMs", StressHarness.tickMillis(times))
+				.put("allocatedBytesPerTick", allocated / ARROW_TICKS)
+				.put("arrowsInFlight", Json.object()
+						.put("mean", inFlight / ARROW_TICKS)
+						.put("max", maxInFlight))
+				.put("nanosPerArrowTick", inFlight == 0 ? 0 : total / inFlight);
+	}
+	
+	private static void shootArrows(Instance instance, Random random) {
+		for (int i = 0; i < ARROWS_PER_TICK; i++) {
+			Arrow arrow = new Arrow(null, false);
+			Pos position = new Pos(random.nextDouble() * ARROW_AREA - ARROW_AREA / 2.0, StressHarness.FLOOR + 1,
+					random.nextDouble() * ARROW_AREA - ARROW_AREA / 2.0);
+			arrow.setInstance(instance, position);
+			
+			Pos direction = Pos.ZERO.withView(random.nextFloat() * 360, -80 - random.nextFloat() * 10);
+			arrow.setVelocity(direction.direction().mul(40));
+		}
+	}
+	
+	/**
+	 * @return the positions of two lines of 10 players, 12 blocks apart, looking at each other
+	 */
+	private static List<Pos> playerPositions() {
+		List<Pos> positions = new ArrayList<>();
+		for (int i = 0; i < PLAYERS; i++) {
+			boolean north = i % 2 == 0;
+			positions.add(new Pos(i / 2 * 1.5 - 7, StressHarness.FLOOR, north ? -6 : 6, north ? 0 : 180, -5));
+		}
+		
+		return positions;
+	}
+	
+	/**
+	 * Throws a snowball for every player whose turn it is, the same way as {@code ProjectileListener}.
+	 */
+	private static void throwSnowballs(Instance instance, List<Player> players, int tick) {
+		for (int i = 0; i < players.size(); i++) {
+			if ((tick + i) % THROW_INTERVAL != 0) continue;
+			Player player = players.get(i);
+			
+			Snowball snowball = new Snowball(player);
+			snowball.setItem(SNOWBALL);
+			
+			Pos position = player.getPosition().add(0D, player.getEyeHeight(), 0D);
+			snowball.setInstance(instance, position);
+			
+			Vec direction = position.direction();
+			position = position.add(direction).sub(0, 0.2, 0);
+			snowball.shoot(position, 1.5, 1.0);
+			thrown++;
+		}
+	}
+	
+	/**
+	 * Ticks the instance, and keeps the players alive and in place so every tick has the same amount of targets.
+	 */
+	private static void tick(Instance instance, List<Player> players) {
+		StressHarness.tick(instance);
+		StressHarness.keepAlive(players);
+		for (Player player : players) {
+			player.setVelocity(Vec.ZERO);
+		}
+	}
+}
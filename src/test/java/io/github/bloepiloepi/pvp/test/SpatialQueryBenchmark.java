@@ -0,0 +1,128 @@
+package io.github.bloepiloepi.pvp.test;
+
+import io.github.bloepiloepi.pvp.test.StressHarness.Json;
+import io.github.bloepiloepi.pvp.utils.SpatialUtils;
+import net.minestom.server.collision.BoundingBox;
+import net.minestom.server.coordinate.Pos;
+import net.minestom.server.entity.EntityType;
+import net.minestom.server.entity.LivingEntity;
+import net.minestom.server.instance.EntityTracker;
+import net.minestom.server.instance.Instance;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+/**
+ * Measures the cost of the {@link SpatialUtils} queries against the amount of entities in an instance,
+ * compared to filtering every entity of the instance like the call sites did before, and reports it as json.
+ * <p>
+ * The entities are spread randomly over an area of 256 by 256 blocks around the origin. The queries are the ones used by
+ * sweep attacks (a box around the target) and splash potions (a radius of 4 blocks), at random positions in the area.
+ * <p>
+ * Arguments: {@code --out=<file>} to also write the report to a file.
+ */
+public class SpatialQueryBenchmark {
+	private static final int[] ENTITY_COUNTS = {250, 500, 1000, 2000, 4000};
+	private static final int QUERIES = 20_000;
+	private static final int AREA = 256;
+	private static final double RADIUS = 4.0;
+	private static final BoundingBox SWEEP_BOX = new BoundingBox(2.6, 0.25 * 2 + 1.8, 2.6);
+	
+	// Keeps the query results from being optimized away
+	private static long blackhole;
+	
+	public static void main(String[] args) throws IOException {
+		StressHarness.init();
+		
+		Json results = Json.array();
+		for (int count : ENTITY_COUNTS) {
+			results.add(run(count));
+		}
+		
+		StressHarness.report(Json.object()
+				.put("queries", QUERIES)
+				.put("results", results), args);
+		StressHarness.exit(true);
+	}
+	
+	private static Json run(int count) {
+		Instance instance = StressHarness.createInstance(null, AREA / 32);
+		
+		Random random = new Random(count);
+		for (int i = 0; i < count; i++) {
+			LivingEntity entity = new LivingEntity(EntityType.ZOMBIE);
+			entity.setNoGravity(true);
+			entity.setInstance(instance, randomPosition(random)).join();
+		}
+		
+		Pos[] positions = new Pos[QUERIES];
+		for (int i = 0; i < QUERIES; i++) {
+			positions[i] = randomPosition(random);
+		}
+		
+		// Warm up every query before measuring it
+		measure(instance, positions);
+		long[] times = measure(instance, positions);
+		
+		StressHarness.removeInstance(instance);
+		
+		return Json.object()
+				.put("entities", count)
+				.put("nanosPerQuery", Json.object()
+						.put("radius", perQuery(times[0]))
+						.put("radiusScan", perQuery(times[1]))
+						.put("box", perQuery(times[2]))
+						.put("boxScan", perQuery(times[3])));
+	}
+	
+	/**
+	 * @return the total time of the radius query, the radius scan, the box query and the box scan
+	 */
+	private static long[] measure(Instance instance, Pos[] positions) {
+		double radiusSquared = RADIUS * RADIUS;
+		long radius = time(() -> {
+			for (Pos position : positions) {
+				blackhole += SpatialUtils.getInRadius(instance, position, RADIUS, EntityTracker.Target.LIVING_ENTITIES).size();
+			}
+		});
+		long radiusScan = time(() -> {
+			for (Pos position : positions) {
+				blackhole += instance.getEntities().stream()
+						.filter(entity -> entity instanceof LivingEntity)
+						.filter(entity -> entity.getPosition().distanceSquared(position) < radiusSquared)
+						.collect(Collectors.toList()).size();
+			}
+		});
+		long box = time(() -> {
+			for (Pos position : positions) {
+				blackhole += SpatialUtils.getIntersecting(instance, position, SWEEP_BOX, EntityTracker.Target.LIVING_ENTITIES).size();
+			}
+		});
+		long boxScan = time(() -> {
+			for (Pos position : positions) {
+				blackhole += instance.getEntities().stream()
+						.filter(entity -> entity instanceof LivingEntity)
+						.filter(entity -> SWEEP_BOX.intersectEntity(position, entity))
+						.collect(Collectors.toList()).size();
+			}
+		});
+		
+		return new long[] {radius, radiusScan, box, boxScan};
+	}
+	
+	private static Pos randomPosition(Random random) {
+		return new Pos(random.nextDouble() * AREA - AREA / 2.0, 40 + random.nextDouble() * 4,
+				random.nextDouble() * AREA - AREA / 2.0);
+	}
+	
+	private static long time(Runnable runnable) {
+		long start = System.nanoTime();
+		runnable.run();
+		return System.nanoTime() - start;
+	}
+	
+	private static double perQuery(long nanos) {
+		return Math.round(nanos * 10.0 / QUERIES) / 10.0;
+	}
+}
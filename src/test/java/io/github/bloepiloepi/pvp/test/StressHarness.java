@@ -0,0 +1,340 @@
+package io.github.bloepiloepi.pvp.test;
+
+import io.github.bloepiloepi.pvp.PvpExtension;
+import io.github.bloepiloepi.pvp.utils.CombatClock;
+import io.github.bloepiloepi.pvp.utils.ManualCombatClock;
+import net.minestom.server.MinecraftServer;
+import net.minestom.server.attribute.Attribute;
+import net.minestom.server.coordinate.Pos;
+import net.minestom.server.entity.Entity;
+import net.minestom.server.entity.GameMode;
+import net.minestom.server.entity.Player;
+import net.minestom.server.entity.fakeplayer.FakePlayer;
+import net.minestom.server.entity.fakeplayer.FakePlayerOption;
+import net.minestom.server.event.GlobalEventHandler;
+import net.minestom.server.event.player.PlayerLoginEvent;
+import net.minestom.server.instance.Chunk;
+import net.minestom.server.instance.ChunkGenerator;
+import net.minestom.server.instance.ChunkPopulator;
+import net.minestom.server.instance.Instance;
+import net.minestom.server.instance.batch.ChunkBatch;
+import net.minestom.server.instance.block.Block;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * The parts shared by the stress tests and benchmarks in this package.
+ * <p>
+ * The server runs in-process without network, and is ticked by the calling thread instead of the server thread,
+ * so a measured tick only contains the work done for the instance being ticked.
+ * Every main reports its results as json, which is printed and written to the file given by {@code --out=<file>}.
+ */
+final class StressHarness {
+	/**
+	 * The y coordinate above the stone floor generated by {@link #terrain(int, double, Block...)}.
+	 */
+	static final int FLOOR = 40;
+	
+	static final ManualCombatClock CLOCK = new ManualCombatClock();
+	private static final com.sun.management.ThreadMXBean THREADS =
+			(com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+	
+	private static Instance spawningInstance;
+	
+	private StressHarness() {
+	}
+	
+	/**
+	 * Starts the server and the extension, with the combat clock stepped by {@link #tick(Instance)}.
+	 *
+	 * @return the global event handler, to register the config and the listeners of the main
+	 */
+	static GlobalEventHandler init() {
+		MinecraftServer.init();
+		PvpExtension.init();
+		CombatClock.set(CLOCK);
+		
+		GlobalEventHandler eventHandler = MinecraftServer.getGlobalEventHandler();
+		eventHandler.addListener(PlayerLoginEvent.class, event -> event.setSpawningInstance(spawningInstance));
+		return eventHandler;
+	}
+	
+	/**
+	 * Creates an instance and loads the chunks from {@code -chunkRadius} until {@code chunkRadius} on both axes.
+	 *
+	 * @param generator the generator of the chunks, or null for empty chunks
+	 */
+	static Instance createInstance(@Nullable ChunkGenerator generator, int chunkRadius) {
+		Instance instance = MinecraftServer.getInstanceManager().createInstanceContainer();
+		instance.setChunkGenerator(generator);
+		for (int x = -chunkRadius; x <= chunkRadius; x++) {
+			for (int z = -chunkRadius; z <= chunkRadius; z++) {
+				instance.loadChunk(x, z).join();
+			}
+		}
+		
+		return instance;
+	}
+	
+	/**
+	 * Removes all entities of an instance and unregisters it.
+	 */
+	static void removeInstance(Instance instance) {
+		for (Entity entity : new ArrayList<>(instance.getEntities())) {
+			entity.remove();
+		}
+		MinecraftServer.getInstanceManager().unregisterInstance(instance);
+	}
+	
+	/**
+	 * Creates a generator with stone up to {@link #FLOOR}, and randomly placed blocks above it up to the surface.
+	 * Every chunk is seeded by its position, so every run generates the same terrain.
+	 *
+	 * @param surface the y coordinate above the highest block
+	 * @param fill the chance of a position above the floor to contain a block
+	 * @param blocks the blocks to choose from above the floor
+	 */
+	static ChunkGenerator terrain(int surface, double fill, Block... blocks) {
+		return new TerrainGenerator(surface, fill, blocks);
+	}
+	
+	/**
+	 * @return a generator with only stone up to {@link #FLOOR}
+	 */
+	static ChunkGenerator flat() {
+		return terrain(FLOOR, 0);
+	}
+	
+	/**
+	 * Spawns a fake player at every position, in survival and with 1024 health,
+	 * and ticks the instance until all of them joined.
+	 * The players respawn at the position they were spawned at.
+	 */
+	static List<Player> spawnPlayers(Instance instance, List<Pos> positions) {
+		spawningInstance = instance;
+		
+		List<Player> players = new ArrayList<>();
+		FakePlayerOption option = new FakePlayerOption().setRegistered(true).setInTabList(false);
+		for (int i = 0; i < positions.size(); i++) {
+			Pos position = positions.get(i);
+			FakePlayer.initPlayer(UUID.randomUUID(), "stress" + i, option, player -> {
+				player.setGameMode(GameMode.SURVIVAL);
+				player.getAttribute(Attribute.MAX_HEALTH).setBaseValue(1024);
+				player.setRespawnPoint(position);
+				player.heal();
+				player.teleport(position);
+				players.add(player);
+			});
+		}
+		
+		// Players are added to the instance while ticking
+		for (int tick = 0; tick < 100 && players.size() < positions.size(); tick++) {
+			tick(instance);
+		}
+		
+		return players;
+	}
+	
+	/**
+	 * Respawns and heals the players, so every tick has the same amount of targets.
+	 */
+	static void keepAlive(List<Player> players) {
+		for (Player player : players) {
+			if (player.isDead()) player.respawn();
+			player.heal();
+		}
+	}
+	
+	/**
+	 * Runs a server tick for a single instance, in the same order as the server thread.
+	 */
+	static void tick(Instance instance) {
+		long time = System.currentTimeMillis();
+		CLOCK.step();
+		MinecraftServer.getConnectionManager().updateWaitingPlayers();
+		MinecraftServer.getSchedulerManager().processTick();
+		
+		tickInstance(instance, time);
+	}
+	
+	/**
+	 * Ticks an instance and its entities, without stepping the clock or running the scheduler.
+	 */
+	static void tickInstance(Instance instance, long time) {
+		instance.tick(time);
+		for (Entity entity : new ArrayList<>(instance.getEntities())) {
+			entity.tick(time);
+		}
+	}
+	
+	/**
+	 * @return the total amount of bytes allocated by all threads so far
+	 */
+	static long getAllocatedBytes() {
+		long total = 0;
+		for (long bytes : THREADS.getThreadAllocatedBytes(THREADS.getAllThreadIds())) {
+			if (bytes > 0) total += bytes;
+		}
+		
+		return total;
+	}
+	
+	/**
+	 * Sorts the tick times and summarizes them.
+	 *
+	 * @return the mean, median, 99th percentile and maximum in milliseconds
+	 */
+	static Json tickMillis(long[] times) {
+		Arrays.sort(times);
+		return Json.object()
+				.put("mean", millis(Arrays.stream(times).sum() / times.length))
+				.put("p50", millis(percentile(times, 50)))
+				.put("p99", millis(percentile(times, 99)))
+				.put("max", millis(times[times.length - 1]));
+	}
+	
+	static long percentile(long[] sorted, int percent) {
+		return sorted[(sorted.length - 1) * percent / 100];
+	}
+	
+	/**
+	 * @return the nanoseconds in milliseconds, rounded to microseconds
+	 */
+	static double millis(long nanos) {
+		return Math.round(nanos / 1_000.0) / 1_000.0;
+	}
+	
+	/**
+	 * Prints the report, and writes it to the file given by {@code --out=<file>} if there is one.
+	 */
+	static void report(Json report, String[] args) throws IOException {
+		String json = report + "\n";
+		System.out.print(json);
+		
+		for (String arg : args) {
+			if (arg.startsWith("--out=")) Files.writeString(Path.of(arg.substring("--out=".length())), json);
+		}
+	}
+	
+	/**
+	 * Stops the server and exits the process.
+	 *
+	 * @param success whether to exit with status 0, or with status 1
+	 */
+	static void exit(boolean success) {
+		MinecraftServer.stopCleanly();
+		System.exit(success ? 0 : 1);
+	}
+	
+	/**
+	 * A json object or array. Objects and arrays containing other objects or arrays are written on multiple lines.
+	 * Values are written as strings if they are {@link String}s, and using {@link String#valueOf(Object)} otherwise.
+	 */
+	static final class Json {
+		private final boolean array;
+		private final List<String> names = new ArrayList<>();
+		private final List<Object> values = new ArrayList<>();
+		
+		private Json(boolean array) {
+			this.array = array;
+		}
+		
+		static Json object() {
+			return new Json(false);
+		}
+		
+		static Json array() {
+			return new Json(true);
+		}
+		
+		Json put(String name, Object value) {
+			names.add(name);
+			values.add(value);
+			return this;
+		}
+		
+		Json add(Object value) {
+			values.add(value);
+			return this;
+		}
+		
+		@Override
+		public String toString() {
+			return write("");
+		}
+		
+		private String write(String indent) {
+			boolean nested = values.stream().anyMatch(value -> value instanceof Json);
+			String separator = nested ? ",\n" : ", ";
+			String valueIndent = nested ? indent + "  " : "";
+			
+			StringBuilder builder = new StringBuilder(array ? "[" : "{");
+			if (nested && !values.isEmpty()) builder.append('\n');
+			for (int i = 0; i < values.size(); i++) {
+				if (i > 0) builder.append(separator);
+				builder.append(valueIndent);
+				if (!array) builder.append(quote(names.get(i))).append(": ");
+				
+				Object value = values.get(i);
+				if (value instanceof Json json) {
+					builder.append(json.write(valueIndent));
+				} else if (value instanceof String string) {
+					builder.append(quote(string));
+				} else {
+					builder.append(value);
+				}
+			}
+			if (nested && !values.isEmpty()) builder.append('\n').append(indent);
+			
+			return builder.append(array ? "]" : "}").toString();
+		}
+		
+		private static String quote(String string) {
+			return '"' + string.replace("\\", "\\\\").replace("\"", "\\\"") + '"';
+		}
+	}
+	
+	private static class TerrainGenerator implements ChunkGenerator {
+		private final int surface;
+		private final double fill;
+		private final Block[] blocks;
+		
+		private TerrainGenerator(int surface, double fill, Block[] blocks) {
+			this.surface = surface;
+			this.fill = fill;
+			this.blocks = blocks;
+		}
+		
+		@Override
+		public void generateChunkData(@NotNull ChunkBatch batch, int chunkX, int chunkZ) {
+			Random random = new Random(chunkX * 31L + chunkZ);
+			for (int x = 0; x < Chunk.CHUNK_SIZE_X; x++) {
+				for (int z = 0; z < Chunk.CHUNK_SIZE_Z; z++) {
+					for (int y = 0; y < FLOOR; y++) {
+						batch.setBlock(x, y, z, Block.STONE);
+					}
+					for (int y = FLOOR; y < surface; y++) {
+						if (random.nextDouble() < fill) {
+							batch.setBlock(x, y, z, blocks[random.nextInt(blocks.length)]);
+						}
+					}
+				}
+			}
+		}
+		
+		@Override
+		public @Nullable List<ChunkPopulator> getPopulators() {
+			return null;
+		}
+	}
+}